@@ -0,0 +1,63 @@
+package com.github.navnesen.async;
+
+import com.github.navnesen.util.Result;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsyncResultBenchmark {
+
+	@Param({"off", "sampled:64", "lazy", "full"})
+	public String stackTraceMode;
+
+	protected Executor callerRuns;
+	protected int value;
+
+	@Setup
+	public void setup() {
+		this.callerRuns = AsyncExecutors.callerRuns();
+		this.value = 1;
+		StackTraceMode.setDefault(StackTraceMode.parse(this.stackTraceMode));
+	}
+
+	@Benchmark
+	public Result<Integer, Throwable> createDefaultExecutor() {
+		return AsyncResult.run(() -> this.value).await();
+	}
+
+	@Benchmark
+	public Result<Integer, Throwable> createCallerRuns() {
+		return AsyncResult.run(() -> this.value, this.callerRuns).await();
+	}
+
+	@Benchmark
+	public Result<Integer, Throwable> chainCompleted() {
+		return AsyncResult.ok(this.value)
+			.map(value -> value + 1)
+			.map(value -> value * 2)
+			.andThen(value -> AsyncResult.ok(value - 1))
+			.map(value -> value + 1)
+			.andThen(value -> AsyncResult.ok(value * 2))
+			.await();
+	}
+
+	@Benchmark
+	public Result<Integer, Throwable> chainDeferred() {
+		var source = new DeferredAsyncResult<Integer>();
+		var chain = source
+			.map(value -> value + 1)
+			.map(value -> value * 2)
+			.andThen(value -> AsyncResult.ok(value - 1))
+			.map(value -> value + 1)
+			.andThen(value -> AsyncResult.ok(value * 2));
+		source.okay(this.value);
+		return chain.await();
+	}
+}
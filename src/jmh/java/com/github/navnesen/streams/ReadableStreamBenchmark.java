@@ -0,0 +1,68 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.util.Option;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadableStreamBenchmark {
+
+	protected static final int BATCH = 64;
+
+	protected long next;
+	protected final List<Long> drained = new ArrayList<>(BATCH);
+	protected Reader<Long> pullReader;
+	protected ReadableStream<Long> pushStream;
+	protected Reader<Long> pushReader;
+
+	@Setup
+	public void setup() {
+		// an endless stream of increasing numbers
+		this.pullReader = new ReadableStream<Long>(() -> AsyncResult.ok(Option.some(this.next++)))
+			.getReader()
+			.unwrap();
+		this.pushStream = new ReadableStream<>();
+		this.pushReader = this.pushStream.getReader().unwrap();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.pullReader.releaseLock();
+		this.pushReader.releaseLock();
+	}
+
+	@Benchmark
+	public Option<Long> singleReader() {
+		return this.pullReader.read().unwrap();
+	}
+
+	@Benchmark
+	public Option<Long> enqueueThenRead() {
+		this.pushStream.tryEnqueue(this.next++);
+		return this.pushReader.read().unwrap();
+	}
+
+	/**
+	 * Moves {@link ReadableStreamBenchmark#BATCH} chunks per invocation, to
+	 * compare with that many {@link ReadableStreamBenchmark#enqueueThenRead}
+	 * calls.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int enqueueThenDrain() {
+		for (int i = 0; i < BATCH; i++) {
+			this.pushStream.tryEnqueue(this.next++);
+		}
+		this.drained.clear();
+		return this.pushReader.drainTo(this.drained).unwrap();
+	}
+}
@@ -0,0 +1,47 @@
+package com.github.navnesen.sync;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutexBenchmark {
+
+	protected Mutex<Long> mutex;
+
+	@Setup
+	public void setup() {
+		this.mutex = new Mutex<>(0L);
+	}
+
+	protected long increment() {
+		try (var lock = this.mutex.lock()) {
+			var value = lock.get() + 1;
+			lock.set(value);
+			return value;
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public long lockRelease1Thread() {
+		return this.increment();
+	}
+
+	@Benchmark
+	@Threads(2)
+	public long lockRelease2Threads() {
+		return this.increment();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public long lockReleaseMaxThreads() {
+		return this.increment();
+	}
+}
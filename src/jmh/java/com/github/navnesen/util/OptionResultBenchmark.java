@@ -0,0 +1,86 @@
+package com.github.navnesen.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with the GC profiler (enabled by the {@code jmh} Gradle task) to see
+ * the allocation rate of the combinators.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptionResultBenchmark {
+
+	protected Integer value;
+	protected Integer fallback;
+	protected long primitiveValue;
+
+	@Setup
+	public void setup() {
+		this.value = 42;
+		this.fallback = 7;
+		this.primitiveValue = 42;
+	}
+
+	@Benchmark
+	public Option<Integer> none() {
+		return Option.none();
+	}
+
+	@Benchmark
+	public Integer optionSomeChain() {
+		return Option.some(this.value)
+			.map(value -> value + 1)
+			.filter(value -> value > 0)
+			.or(Option.some(this.fallback))
+			.unwrapOr(this.fallback);
+	}
+
+	@Benchmark
+	public Integer optionNoneChain() {
+		return Option.<Integer>none()
+			.map(value -> value + 1)
+			.orElse(() -> Option.some(this.fallback))
+			.unwrapOr(this.fallback);
+	}
+
+	@Benchmark
+	public Integer resultOkChain() {
+		return Result.<Integer, Throwable>ok(this.value)
+			.map(value -> value + 1)
+			.andThen(value -> Result.ok(value * 2))
+			.or(Result.ok(this.fallback))
+			.unwrapOr(this.fallback);
+	}
+
+	@Benchmark
+	public Integer resultErrChain() {
+		return Result.<Integer, Integer>err(this.value)
+			.map(value -> value + 1)
+			.mapErr(error -> error - 1)
+			.orElse(Result::ok)
+			.unwrapOr(this.fallback);
+	}
+
+	@Benchmark
+	public long optionLongChain() {
+		return OptionLong.some(this.primitiveValue)
+			.map(value -> value + 1)
+			.filter(value -> value > 0)
+			.or(OptionLong.some(this.primitiveValue))
+			.unwrapOr(0);
+	}
+
+	@Benchmark
+	public long resultLongChain() {
+		return ResultLong.<Throwable>ok(this.primitiveValue)
+			.map(value -> value + 1)
+			.andThen(value -> ResultLong.ok(value * 2))
+			.unwrapOr(0);
+	}
+}
@@ -0,0 +1,101 @@
+package com.github.navnesen.async;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors used to run the actions of {@link AsyncResult}.
+ * <p>
+ * Every action that is not given an executor explicitly runs on the global
+ * default, which can be replaced with {@link AsyncExecutors#setDefault}.
+ */
+public class AsyncExecutors {
+
+	private static volatile Executor defaultExecutor;
+	private static volatile Executor virtualThreadExecutor;
+
+	/**
+	 * Get the executor used when no executor is given to an async action.
+	 * Defaults to {@link AsyncExecutors#virtualThreads()}.
+	 */
+	public static Executor getDefault() {
+		var executor = defaultExecutor;
+		// not written back, so a concurrent setDefault is never overwritten
+		return executor != null ? executor : virtualThreads();
+	}
+
+	/**
+	 * Replace the executor used when no executor is given to an async action.
+	 */
+	public static void setDefault(Executor executor) {
+		if (executor == null) {
+			throw new NullPointerException("executor");
+		}
+		defaultExecutor = executor;
+	}
+
+	/**
+	 * An executor that starts one virtual thread per task.
+	 * <p>
+	 * Virtual threads are only available from Java 21. On older runtimes a
+	 * shared cached pool of daemon threads is used instead, so threads are
+	 * reused between tasks rather than created for each one.
+	 */
+	public static Executor virtualThreads() {
+		var executor = virtualThreadExecutor;
+		if (executor == null) {
+			synchronized (AsyncExecutors.class) {
+				executor = virtualThreadExecutor;
+				if (executor == null) {
+					executor = createVirtualThreadExecutor();
+					virtualThreadExecutor = executor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * A new fork-join pool with at most {@code parallelism} worker threads.
+	 * <p>
+	 * Actions that block (e.g. by calling {@link AsyncResult#await()} on a
+	 * result that is produced by the same pool) can exhaust a bounded pool,
+	 * so this is best suited for CPU-bound actions.
+	 */
+	public static ExecutorService forkJoin(int parallelism) {
+		return new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+	}
+
+	/**
+	 * A fork-join pool with one worker thread per available processor.
+	 */
+	public static ExecutorService forkJoin() {
+		return forkJoin(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * An executor that runs the action on the calling thread, before the
+	 * constructor of the async result returns.
+	 */
+	public static Executor callerRuns() {
+		return Runnable::run;
+	}
+
+	private static Executor createVirtualThreadExecutor() {
+		try {
+			var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (Executor) factory.invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException ex) {
+			// virtual threads are not available in this runtime
+		}
+		final var counter = new AtomicInteger();
+		return Executors.newCachedThreadPool(runnable -> {
+			var thread = new Thread(runnable, "async-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
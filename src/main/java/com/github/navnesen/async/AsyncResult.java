@@ -1,114 +1,434 @@
 package com.github.navnesen.async;
 
+import com.github.navnesen.async.common.AggregateException;
 import com.github.navnesen.async.common.AsyncAction;
 import com.github.navnesen.async.common.AsyncActionResult;
 import com.github.navnesen.async.common.AwaitableResult;
-import com.github.navnesen.sync.Mutex;
 import com.github.navnesen.util.Dirty;
 import com.github.navnesen.util.Result;
 import com.github.navnesen.util.common.InspectAction;
 import com.github.navnesen.util.common.TypeAction;
 import com.github.navnesen.util.common.TypeActionMap;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
 public class AsyncResult<T> implements AwaitableResult<T> {
 
 	public static <T> AsyncResult<T> ok(T value) {
 		return new AsyncResult<>(Result.ok(value));
 	}
 
-	public static AsyncResult<?> err(Throwable exception) {
+	public static <T> AsyncResult<T> err(Throwable exception) {
 		return new AsyncResult<>(Result.err(exception));
 	}
 
-	protected Mutex<Result<T, Throwable>> internalResult = new Mutex<>(null);
+	/**
+	 * A result that completes with {@code stage}. No thread waits for the
+	 * stage; its completion callback completes the result.
+	 */
+	public static <T> AsyncResult<T> from(CompletionStage<T> stage) {
+		var result = new AsyncResult<T>();
+		stage.whenComplete((value, exception) -> {
+			if (exception == null) {
+				result.tryComplete(Result.ok(value));
+				return;
+			}
+			// stages derived from a failed stage wrap the original exception
+			if (exception instanceof CompletionException && exception.getCause() != null) {
+				exception = exception.getCause();
+			}
+			result.tryComplete(Result.err(exception));
+		});
+		if (stage instanceof Future<?> future) {
+			result.onComplete(completion -> {
+				if (result.isCancelled()) {
+					future.cancel(true);
+				}
+			});
+		}
+		return result;
+	}
 
-	protected AsyncResult() {
+	/**
+	 * A result that completes with {@code value} once {@code delay} has
+	 * passed.
+	 */
+	public static <T> AsyncResult<T> delay(Duration delay, T value) {
+		var result = new AsyncResult<T>();
+		var deadline = AsyncTimer.schedule(delay, () -> result.tryComplete(Result.ok(value)));
+		result.onComplete(completion -> deadline.cancel(false));
+		return result;
 	}
 
-	protected AsyncResult(Result<T, Throwable> result) {
-		try (var value = this.internalResult.lock()) {
-			value.set(result);
+	// region combinators
+
+	/**
+	 * A result that completes with the values of all {@code results}, in
+	 * their order, or fails as soon as one of them fails. The inputs that
+	 * are still pending then are released.
+	 */
+	public static <T> AsyncResult<List<T>> all(Collection<? extends AsyncResult<T>> results) {
+		if (results.isEmpty()) {
+			return AsyncResult.ok(new ArrayList<>());
 		}
+		var all = new AsyncResult<List<T>>();
+		final Object[] values = new Object[results.size()];
+		// the callback that counts down to zero sees the values stored by
+		// all the others
+		final AtomicInteger remaining = new AtomicInteger(values.length);
+		int index = 0;
+		for (var result : results) {
+			if (all.isDone()) {
+				break;
+			}
+			final int slot = index++;
+			all.internalDependOn(result);
+			result.onComplete(completion -> {
+				if (completion.isErr()) {
+					all.tryComplete(Result.err(completion.unwrapErrUnchecked()));
+					return;
+				}
+				values[slot] = completion.unwrapUnchecked();
+				if (remaining.decrementAndGet() == 0) {
+					all.tryComplete(Result.ok(asList(values)));
+				}
+			});
+		}
+		return all;
 	}
 
-	public AsyncResult(AsyncAction<T> action) {
-		final StackTraceElement[] mainStackTrace;
-		{
-			var tempStackTrace = Thread.currentThread().getStackTrace();
-			mainStackTrace = new StackTraceElement[tempStackTrace.length - 1];
-			System.arraycopy(tempStackTrace, 1, mainStackTrace, 0, tempStackTrace.length - 1);
+	@SafeVarargs
+	public static <T> AsyncResult<List<T>> all(AsyncResult<T>... results) {
+		// copied element by element, since handing the generic array on is
+		// what @SafeVarargs cannot vouch for
+		final List<AsyncResult<T>> list = new ArrayList<>(results.length);
+		for (var result : results) {
+			list.add(result);
 		}
-		new Thread(() -> {
-			Result<T, Throwable> completion;
+		return all(list);
+	}
 
-			try {
-				var result = action.run();
-				completion = Result.ok(result);
-			} catch (Throwable exception) {
-				var originalStackTrace = exception.getStackTrace();
-				var newStackTrace = new StackTraceElement[originalStackTrace.length - 2 + mainStackTrace.length];
-				System.arraycopy(originalStackTrace, 0, newStackTrace, 0, originalStackTrace.length - 2);
-				System.arraycopy(mainStackTrace, 0, newStackTrace, originalStackTrace.length - 2, mainStackTrace.length);
-				exception.setStackTrace(newStackTrace);
-				completion = Result.err(exception);
+	/**
+	 * A result that completes with the outcome of every one of
+	 * {@code results}, in their order, once all of them completed.
+	 */
+	public static <T> AsyncResult<List<Result<T, Throwable>>> allSettled(Collection<? extends AsyncResult<T>> results) {
+		if (results.isEmpty()) {
+			return AsyncResult.ok(new ArrayList<>());
+		}
+		var all = new AsyncResult<List<Result<T, Throwable>>>();
+		final Object[] outcomes = new Object[results.size()];
+		final AtomicInteger remaining = new AtomicInteger(outcomes.length);
+		int index = 0;
+		for (var result : results) {
+			final int slot = index++;
+			all.internalDependOn(result);
+			result.onComplete(completion -> {
+				outcomes[slot] = completion;
+				if (remaining.decrementAndGet() == 0) {
+					all.tryComplete(Result.ok(asList(outcomes)));
+				}
+			});
+		}
+		return all;
+	}
+
+	@SafeVarargs
+	public static <T> AsyncResult<List<Result<T, Throwable>>> allSettled(AsyncResult<T>... results) {
+		final List<AsyncResult<T>> list = new ArrayList<>(results.length);
+		for (var result : results) {
+			list.add(result);
+		}
+		return allSettled(list);
+	}
+
+	/**
+	 * A result that completes with the first of {@code results} to succeed,
+	 * or fails with an {@link AggregateException} once all of them failed.
+	 * The inputs that are still pending then are released.
+	 */
+	public static <T> AsyncResult<T> any(Collection<? extends AsyncResult<T>> results) {
+		if (results.isEmpty()) {
+			return AsyncResult.err(new AggregateException(List.of()));
+		}
+		var any = new AsyncResult<T>();
+		final Throwable[] exceptions = new Throwable[results.size()];
+		final AtomicInteger remaining = new AtomicInteger(exceptions.length);
+		int index = 0;
+		for (var result : results) {
+			if (any.isDone()) {
+				break;
 			}
+			final int slot = index++;
+			any.internalDependOn(result);
+			result.onComplete(completion -> {
+				if (completion.isOk()) {
+					any.tryComplete(completion);
+					return;
+				}
+				exceptions[slot] = completion.unwrapErrUnchecked();
+				if (remaining.decrementAndGet() == 0) {
+					any.tryComplete(Result.err(new AggregateException(Arrays.asList(exceptions))));
+				}
+			});
+		}
+		return any;
+	}
 
-			try {
-				this.complete(completion);
-			} catch (Throwable e) {
-				// will not happen
+	@SafeVarargs
+	public static <T> AsyncResult<T> any(AsyncResult<T>... results) {
+		final List<AsyncResult<T>> list = new ArrayList<>(results.length);
+		for (var result : results) {
+			list.add(result);
+		}
+		return any(list);
+	}
+
+	/**
+	 * A result that completes like the first of {@code results} to
+	 * complete, whether it succeeded or failed. The others are released.
+	 */
+	public static <T> AsyncResult<T> race(Collection<? extends AsyncResult<T>> results) {
+		if (results.isEmpty()) {
+			return AsyncResult.err(new IllegalArgumentException("no results to race"));
+		}
+		var race = new AsyncResult<T>();
+		for (var result : results) {
+			if (race.isDone()) {
+				break;
 			}
-		}).start();
+			race.internalDependOn(result);
+			result.onComplete(race::tryComplete);
+		}
+		return race;
+	}
+
+	@SafeVarargs
+	public static <T> AsyncResult<T> race(AsyncResult<T>... results) {
+		final List<AsyncResult<T>> list = new ArrayList<>(results.length);
+		for (var result : results) {
+			list.add(result);
+		}
+		return race(list);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> List<T> asList(Object[] values) {
+		return (List<T>) Arrays.asList(values);
+	}
+
+	// endregion
+
+	/**
+	 * The completion of this result, or {@code null} while it is pending.
+	 */
+	protected volatile Result<T, Throwable> internalResult;
+
+	/**
+	 * Callbacks waiting for the completion, most recently registered first.
+	 * Guarded by the monitor of this result.
+	 */
+	private Continuation<T> continuations;
+
+	/**
+	 * The pending results this one is derived from. Guarded by the monitor
+	 * of this result.
+	 */
+	private List<AsyncResult<?>> sources;
+
+	/**
+	 * The number of pending results derived from this one. Guarded by the
+	 * monitor of this result.
+	 */
+	private int dependents = 0;
+
+	/**
+	 * The thread running the action of this result, while it runs, and
+	 * whether cancelling interrupted it. Guarded by the monitor of this
+	 * result.
+	 */
+	private Thread runner;
+	private boolean isRunnerInterrupted = false;
+
+	protected AsyncResult() {
+	}
+
+	protected AsyncResult(Result<T, Throwable> result) {
+		this.internalResult = result;
+	}
+
+	public static <T> AsyncResult<T> run(AsyncAction<T> action) {
+		return new AsyncResult<>(action, AsyncExecutors.getDefault());
+	}
+
+	public static <T> AsyncResult<T> run(AsyncAction<T> action, Executor executor) {
+		return new AsyncResult<>(action, executor);
+	}
+
+	public static <T> AsyncResult<T> run(AsyncActionResult<T> action, Executor executor) {
+		return new AsyncResult<>(action, executor);
+	}
+
+	public static <T> AsyncResult<T> run(AsyncAction<T> action, Executor executor, StackTraceMode stackTraceMode) {
+		return new AsyncResult<>(action, executor, stackTraceMode);
+	}
+
+	public AsyncResult(AsyncAction<T> action) {
+		this(action, AsyncExecutors.getDefault());
 	}
 
 	public AsyncResult(AsyncActionResult<T> action) {
-		final StackTraceElement[] mainStackTrace;
-		{
-			var tempStackTrace = Thread.currentThread().getStackTrace();
-			mainStackTrace = new StackTraceElement[tempStackTrace.length - 1];
-			System.arraycopy(tempStackTrace, 1, mainStackTrace, 0, tempStackTrace.length - 1);
+		this(action, AsyncExecutors.getDefault());
+	}
+
+	public AsyncResult(AsyncAction<T> action, Executor executor) {
+		this(action, executor, StackTraceMode.getDefault());
+	}
+
+	public AsyncResult(AsyncActionResult<T> action, Executor executor) {
+		this(action, executor, StackTraceMode.getDefault());
+	}
+
+	public AsyncResult(AsyncAction<T> action, Executor executor, StackTraceMode stackTraceMode) {
+		this((AsyncActionResult<T>) () -> Result.ok(action.run()), executor, stackTraceMode);
+	}
+
+	/**
+	 * @param stackTraceMode how much of the stack of the caller to capture,
+	 *                       to be stitched onto an exception thrown by
+	 *                       {@code action}.
+	 */
+	public AsyncResult(AsyncActionResult<T> action, Executor executor, StackTraceMode stackTraceMode) {
+		final Supplier<StackTraceElement[]> mainStackTrace = captureStackTrace(stackTraceMode);
+		executor.execute(() -> this.execute(action, mainStackTrace));
+	}
+
+	private void execute(AsyncActionResult<T> action, Supplier<StackTraceElement[]> mainStackTrace) {
+		synchronized (this) {
+			if (this.internalResult != null) {
+				// cancelled before it started
+				return;
+			}
+			this.runner = Thread.currentThread();
 		}
-		new Thread(() -> {
-			Result<T, Throwable> completion;
 
-			try {
-				completion = action.run();
-			} catch (Throwable exception) {
-				var originalStackTrace = exception.getStackTrace();
-				var newStackTrace = new StackTraceElement[originalStackTrace.length - 2 + mainStackTrace.length];
-				System.arraycopy(originalStackTrace, 0, newStackTrace, 0, originalStackTrace.length - 2);
-				System.arraycopy(mainStackTrace, 0, newStackTrace, originalStackTrace.length - 2, mainStackTrace.length);
-				exception.setStackTrace(newStackTrace);
-				completion = Result.err(exception);
+		Result<T, Throwable> completion;
+		try {
+			completion = action.run();
+			if (completion == null) {
+				// a lambda that returns null resolves to the AsyncActionResult
+				// overload, but means to complete with a null value
+				completion = Result.ok(null);
+			}
+		} catch (Throwable exception) {
+			if (mainStackTrace != null) {
+				stitchStackTrace(exception, mainStackTrace.get());
 			}
+			completion = Result.err(exception);
+		}
 
-			try {
-				this.complete(completion);
-			} catch (Exception e) {
-				// this.complete() has throws in method signature. It only
-				// throws when complete() has already been called. Which won't
-				// happen here. If it does, the developer has attempted to use
-				// UB which will not be supported. In this regard, the
-				// exception can be safely ignored.
+		synchronized (this) {
+			this.runner = null;
+			if (this.isRunnerInterrupted) {
+				// do not leave the interrupt of a cancel to the next task of
+				// the executor thread
+				Thread.interrupted();
 			}
-		}).start();
+		}
+		// fails if the result was cancelled, in which case the outcome is
+		// dropped
+		this.tryComplete(completion);
 	}
 
-	public Result<T, Throwable> await() {
-		Result<T, Throwable> result;
-		try (var value = this.internalResult.lock()) {
-			result = value.get();
+	private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+	/**
+	 * Capture the stack trace of the caller, without the frames of the
+	 * constructors and factories in this class. Gives null when
+	 * {@code mode} skips this action.
+	 */
+	private static Supplier<StackTraceElement[]> captureStackTrace(StackTraceMode mode) {
+		if (!mode.shouldCapture()) {
+			return null;
 		}
-		while (result == null) {
-			try {
-				wait();
-			} catch (InterruptedException ex) {
-				Thread.currentThread().interrupt();
+		if (mode.isLazy()) {
+			// the frames are only resolved to elements if the action fails
+			final List<StackWalker.StackFrame> frames = STACK_WALKER.walk(stream -> stream
+				.dropWhile(frame -> frame.getClassName().equals(AsyncResult.class.getName()))
+				.toList());
+			return () -> {
+				var mainStackTrace = new StackTraceElement[frames.size()];
+				for (int i = 0; i < mainStackTrace.length; i++) {
+					mainStackTrace[i] = frames.get(i).toStackTraceElement();
+				}
+				return mainStackTrace;
+			};
+		}
+		var stackTrace = Thread.currentThread().getStackTrace();
+		var start = 1;
+		while (start < stackTrace.length && stackTrace[start].getClassName().equals(AsyncResult.class.getName())) {
+			start++;
+		}
+		var mainStackTrace = new StackTraceElement[stackTrace.length - start];
+		System.arraycopy(stackTrace, start, mainStackTrace, 0, mainStackTrace.length);
+		return () -> mainStackTrace;
+	}
+
+	/**
+	 * Replace the executor frames below the action with the stack trace of
+	 * the code that created the async result.
+	 */
+	private static void stitchStackTrace(Throwable exception, StackTraceElement[] mainStackTrace) {
+		var originalStackTrace = exception.getStackTrace();
+		var end = 0;
+		while (end < originalStackTrace.length) {
+			var element = originalStackTrace[end];
+			if (element.getClassName().equals(AsyncResult.class.getName()) && element.getMethodName().equals("execute")) {
+				break;
 			}
-			try (var value = this.internalResult.lock()) {
-				result = value.get();
+			end++;
+		}
+		if (end == originalStackTrace.length) {
+			// the exception was not thrown by the action itself
+			return;
+		}
+		var newStackTrace = new StackTraceElement[end + mainStackTrace.length];
+		System.arraycopy(originalStackTrace, 0, newStackTrace, 0, end);
+		System.arraycopy(mainStackTrace, 0, newStackTrace, end, mainStackTrace.length);
+		exception.setStackTrace(newStackTrace);
+	}
+
+	public Result<T, Throwable> await() {
+		var result = this.internalResult;
+		if (result != null) {
+			return result;
+		}
+		var interrupted = false;
+		synchronized (this) {
+			while ((result = this.internalResult) == null) {
+				try {
+					this.wait();
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
 			}
 		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
 		return result;
 	}
 
@@ -120,52 +440,347 @@ public class AsyncResult<T> implements AwaitableResult<T> {
 		return result.unwrapUnchecked();
 	}
 
+	public boolean isDone() {
+		return this.internalResult != null;
+	}
+
+	/**
+	 * Register a callback that is run once this result completes.
+	 * <p>
+	 * The callback runs on the thread that completes the result, or on the
+	 * calling thread if the result is already completed.
+	 */
+	public void onComplete(InspectAction<Result<T, Throwable>> callback) {
+		synchronized (this) {
+			if (this.internalResult == null) {
+				this.continuations = new Continuation<>(callback, this.continuations);
+				return;
+			}
+		}
+		runContinuation(callback, this.internalResult);
+	}
+
+	/**
+	 * Alias to {@code cancel(true)}.
+	 */
+	public boolean cancel() {
+		return this.cancel(true);
+	}
+
+	/**
+	 * Fail this result with a {@link CancellationException}, unless it is
+	 * already completed.
+	 * <p>
+	 * An action that has not started yet is skipped, and one that is
+	 * running is interrupted if {@code mayInterruptIfRunning} is set.
+	 * Results derived from this one fail with the same exception, without
+	 * running their steps. The results this one was derived from are
+	 * released, and are cancelled in turn once no pending result derived
+	 * from them is left.
+	 *
+	 * @return whether this call cancelled the result.
+	 */
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (!this.tryComplete(Result.err(new CancellationException("async result was cancelled")))) {
+			return false;
+		}
+		if (mayInterruptIfRunning) {
+			synchronized (this) {
+				if (this.runner != null) {
+					this.isRunnerInterrupted = true;
+					this.runner.interrupt();
+				}
+			}
+		}
+		return true;
+	}
+
+	public boolean isCancelled() {
+		var result = this.internalResult;
+		return result != null && result.isErr() && result.unwrapErrUnchecked() instanceof CancellationException;
+	}
+
+	/**
+	 * Record that this result is derived from {@code source}, so that
+	 * {@code source} is released once this result completes while
+	 * {@code source} is still pending.
+	 */
+	protected void internalDependOn(AsyncResult<?> source) {
+		if (source.isDone()) {
+			return;
+		}
+		synchronized (source) {
+			source.dependents++;
+		}
+		boolean isDone;
+		synchronized (this) {
+			isDone = this.internalResult != null;
+			if (!isDone) {
+				if (this.sources == null) {
+					this.sources = new ArrayList<>(1);
+				}
+				this.sources.add(source);
+			}
+		}
+		if (isDone) {
+			source.internalRelease();
+		}
+	}
+
+	/**
+	 * Drop one dependent, and cancel this result if it was the last one.
+	 */
+	protected void internalRelease() {
+		synchronized (this) {
+			if (--this.dependents > 0 || this.internalResult != null) {
+				return;
+			}
+		}
+		this.cancel();
+	}
+
+	/**
+	 * A result that completes like this one, or fails with a
+	 * {@link TimeoutException} if this one has not completed within
+	 * {@code timeout}. A timeout releases this result.
+	 */
+	public AsyncResult<T> timeout(Duration timeout) {
+		if (this.isDone()) {
+			return this;
+		}
+		var result = new AsyncResult<T>();
+		result.internalDependOn(this);
+		var deadline = AsyncTimer.schedule(timeout, () -> result.tryComplete(Result.err(new TimeoutException("timed out after " + timeout))));
+		this.onComplete(completion -> {
+			deadline.cancel(false);
+			result.tryComplete(completion);
+		});
+		return result;
+	}
+
+	/**
+	 * A future that completes with this result. Completing the future from
+	 * outside does not affect this result, but cancelling it cancels this
+	 * result.
+	 */
+	public CompletableFuture<T> toCompletableFuture() {
+		var future = new CompletableFuture<T>();
+		this.onComplete(result -> {
+			if (result.isErr()) {
+				future.completeExceptionally(result.unwrapErrUnchecked());
+			} else {
+				future.complete(result.unwrapUnchecked());
+			}
+		});
+		future.whenComplete((value, exception) -> {
+			if (future.isCancelled()) {
+				this.cancel();
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * A read-only completion stage of this result, which cannot be
+	 * completed from outside.
+	 */
+	public CompletionStage<T> toCompletionStage() {
+		return this.toCompletableFuture().minimalCompletionStage();
+	}
+
+	/**
+	 * Complete this result. Completing a cancelled result is ignored, since
+	 * the producer may not have seen the cancellation yet.
+	 */
 	protected void complete(Result<T, Throwable> result) throws Exception {
-		try (var value = this.internalResult.lock()) {
-			if (value.get() != null) {
-				throw new Exception("Async result is already completed!");
+		if (!this.tryComplete(result) && !this.isCancelled()) {
+			throw new Exception("Async result is already completed!");
+		}
+	}
+
+	/**
+	 * Complete this result unless it is already completed.
+	 *
+	 * @return whether this call completed the result.
+	 */
+	protected boolean tryComplete(Result<T, Throwable> result) {
+		if (result == null) {
+			throw new NullPointerException("result");
+		}
+		Continuation<T> continuations;
+		List<AsyncResult<?>> sources;
+		synchronized (this) {
+			if (this.internalResult != null) {
+				return false;
+			}
+			this.internalResult = result;
+			continuations = this.continuations;
+			this.continuations = null;
+			sources = this.sources;
+			this.sources = null;
+			this.notifyAll();
+		}
+		if (sources != null) {
+			for (var source : sources) {
+				if (!source.isDone()) {
+					source.internalRelease();
+				}
+			}
+		}
+		// the callbacks are stored newest first, run them in registration order
+		Continuation<T> ordered = null;
+		while (continuations != null) {
+			var next = continuations.next;
+			continuations.next = ordered;
+			ordered = continuations;
+			continuations = next;
+		}
+		while (ordered != null) {
+			runContinuation(ordered.callback, result);
+			ordered = ordered.next;
+		}
+		return true;
+	}
+
+	private static <T> void runContinuation(InspectAction<Result<T, Throwable>> callback, Result<T, Throwable> result) {
+		try {
+			callback.run(result);
+		} catch (Throwable ex) {
+			var thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+		}
+	}
+
+	/**
+	 * Create a result that completes with the outcome of {@code action}, run
+	 * as soon as this result completes.
+	 */
+	private <U> AsyncResult<U> thenApply(TypeActionMap<Result<T, Throwable>, Result<U, Throwable>> action) {
+		var next = new AsyncResult<U>();
+		next.internalDependOn(this);
+		this.onComplete(result -> {
+			if (isCancellation(result)) {
+				next.tryComplete(Result.err(result.unwrapErrUnchecked()));
+				return;
+			}
+			Result<U, Throwable> completion;
+			try {
+				completion = action.run(result);
+			} catch (Throwable exception) {
+				completion = Result.err(exception);
+			}
+			next.tryComplete(completion);
+		});
+		return next;
+	}
+
+	/**
+	 * Create a result that completes with the awaitable returned by
+	 * {@code action}, run as soon as this result completes.
+	 */
+	private <U> AsyncResult<U> thenCompose(TypeActionMap<Result<T, Throwable>, AwaitableResult<U>> action) {
+		var next = new AsyncResult<U>();
+		next.internalDependOn(this);
+		this.onComplete(result -> {
+			if (isCancellation(result)) {
+				next.tryComplete(Result.err(result.unwrapErrUnchecked()));
+				return;
 			}
-			value.set(result);
+			AwaitableResult<U> awaitable;
+			try {
+				awaitable = action.run(result);
+			} catch (Throwable exception) {
+				next.tryComplete(Result.err(exception));
+				return;
+			}
+			forward(awaitable, next);
+		});
+		return next;
+	}
+
+	/**
+	 * Complete {@code target} with the outcome of {@code source}. Only
+	 * awaitables that are not async results need a thread to wait on.
+	 */
+	private static <U> void forward(AwaitableResult<U> source, AsyncResult<U> target) {
+		if (source instanceof AsyncResult<U> async) {
+			target.internalDependOn(async);
+			async.onComplete(target::tryComplete);
+			return;
 		}
+		AsyncExecutors.getDefault().execute(() -> {
+			Result<U, Throwable> completion;
+			try {
+				completion = source.await();
+			} catch (Throwable exception) {
+				completion = Result.err(exception);
+			}
+			target.tryComplete(completion);
+		});
 	}
 
 	public <U> AsyncResult<U> map(TypeActionMap<T, U> action) {
-		return new AsyncResult<>(() -> this.await().map(action));
+		return this.thenApply(result -> result.map(action));
 	}
 
 	public <U> AsyncResult<U> mapOr(TypeActionMap<T, U> action, T defaultValue) {
-		return new AsyncResult<>(() -> this.await().mapOr(action, defaultValue));
+		return this.thenApply(result -> result.mapOr(action, defaultValue));
 	}
 
 	public <U> AsyncResult<U> mapOrElse(TypeActionMap<T, U> action, TypeAction<T> defaultValueFn) {
-		return new AsyncResult<>(() -> this.await().mapOrElse(action, defaultValueFn));
+		return this.thenApply(result -> result.mapOrElse(action, defaultValueFn));
 	}
 
 	public AsyncResult<T> mapErr(TypeActionMap<Throwable, Throwable> action) {
-		return new AsyncResult<>(() -> this.await().mapErr(action));
+		return this.thenApply(result -> result.mapErr(action));
 	}
 
 	public AsyncResult<T> inspect(InspectAction<T> action) {
-		return new AsyncResult<>(() -> this.await().inspect(action));
+		return this.thenApply(result -> result.inspect(action));
 	}
 
 	public AsyncResult<T> inspectErr(InspectAction<Throwable> action) {
-		return new AsyncResult<>(() -> this.await().inspectErr(action));
+		return this.thenApply(result -> result.inspectErr(action));
 	}
 
 	public <U> AsyncResult<U> and(AwaitableResult<U> res) {
-		return new AsyncResult<U>(() -> this.await().and(res.await()));
+		return this.thenCompose(result -> result.isErr() ? propagateErr(result) : res);
 	}
 
 	public <U> AsyncResult<U> andThen(TypeActionMap<T, AwaitableResult<U>> action) {
-		return new AsyncResult<>(() -> this.await().andThen((value) -> action.run(value).await()));
+		return this.thenCompose(result -> result.isErr() ? propagateErr(result) : action.run(result.unwrapUnchecked()));
 	}
 
 	public AsyncResult<T> or(AwaitableResult<T> res) {
-		return new AsyncResult<>(() -> this.await().or(res.await()));
+		return this.thenCompose(result -> result.isOk() ? this : res);
 	}
 
 	public AsyncResult<T> orElse(TypeActionMap<Throwable, AwaitableResult<T>> action) {
-		return new AsyncResult<>(() -> this.await().orElse((exception) -> action.run(exception).await()));
+		return this.thenCompose(result -> result.isOk() ? this : action.run(result.unwrapErrUnchecked()));
+	}
+
+	/**
+	 * Whether {@code result} is that of a cancelled result, which skips the
+	 * steps of the results derived from it, error handlers included.
+	 */
+	private static boolean isCancellation(Result<?, Throwable> result) {
+		return result.isErr() && result.unwrapErrUnchecked() instanceof CancellationException;
+	}
+
+	private static <U> AsyncResult<U> propagateErr(Result<?, Throwable> result) {
+		return new AsyncResult<>(Result.err(result.unwrapErrUnchecked()));
+	}
+
+	/**
+	 * A node in the intrusive list of completion callbacks.
+	 */
+	private static class Continuation<T> {
+		final InspectAction<Result<T, Throwable>> callback;
+		Continuation<T> next;
+
+		Continuation(InspectAction<Result<T, Throwable>> callback, Continuation<T> next) {
+			this.callback = callback;
+			this.next = next;
+		}
 	}
 }
@@ -0,0 +1,247 @@
+package com.github.navnesen.async;
+
+import com.github.navnesen.async.common.AsyncAction;
+import com.github.navnesen.async.common.AsyncActionResult;
+import com.github.navnesen.util.Result;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
+/**
+ * A scope that owns the async results forked inside it.
+ * <p>
+ * Closing the scope waits for the action of every forked result to end, so
+ * none of them outlive the block that started them, even the ones that
+ * were cancelled but ignore the interrupt. When the scope is created with
+ * {@code cancelOnFailure}, the first failure cancels the results that are
+ * still pending, and interrupts the ones that are running. At most
+ * {@code maxConcurrency} actions of the scope run at a time; the others
+ * wait in the order they were forked.
+ * <pre>{@code
+ * try (var scope = new AsyncScope(true)) {
+ *     var user = scope.fork(() -> loadUser(id));
+ *     var orders = scope.fork(() -> loadOrders(id));
+ *     scope.join().unwrap();
+ *     return render(user.unwrap(), orders.unwrap());
+ * }
+ * }</pre>
+ */
+public class AsyncScope implements AutoCloseable {
+
+	private final boolean cancelOnFailure;
+	private final int maxConcurrency;
+	private final Executor executor;
+
+	// Guarded by the monitor of this scope.
+	private final Set<AsyncResult<?>> pending = new LinkedHashSet<>();
+	private final ArrayDeque<Runnable> queued = new ArrayDeque<>();
+	private final List<DeferredAsyncResult<Void>> joinWaiters = new ArrayList<>();
+	private int forked = 0;
+	// tasks that are queued or running, including those of cancelled results
+	private int tasks = 0;
+	private int running = 0;
+	private Throwable failure;
+	private boolean isCancelled = false;
+	private boolean isClosed = false;
+
+	public AsyncScope() {
+		this(false);
+	}
+
+	public AsyncScope(boolean cancelOnFailure) {
+		this(cancelOnFailure, Integer.MAX_VALUE);
+	}
+
+	public AsyncScope(boolean cancelOnFailure, int maxConcurrency) {
+		this(cancelOnFailure, maxConcurrency, AsyncExecutors.getDefault());
+	}
+
+	/**
+	 * @param cancelOnFailure whether the first failure of a forked result
+	 *                        cancels the others.
+	 * @param maxConcurrency  the number of actions of this scope that may
+	 *                        run at a time.
+	 * @param executor        the executor the actions run on.
+	 */
+	public AsyncScope(boolean cancelOnFailure, int maxConcurrency, Executor executor) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("concurrency must be positive");
+		}
+		this.cancelOnFailure = cancelOnFailure;
+		this.maxConcurrency = maxConcurrency;
+		this.executor = executor;
+	}
+
+	public <T> AsyncResult<T> fork(AsyncAction<T> action) {
+		return this.fork((AsyncActionResult<T>) () -> Result.ok(action.run()));
+	}
+
+	/**
+	 * Run {@code action} in this scope. Forking into a cancelled scope gives
+	 * a cancelled result.
+	 *
+	 * @throws IllegalStateException if the scope is closed.
+	 */
+	public <T> AsyncResult<T> fork(AsyncActionResult<T> action) {
+		synchronized (this) {
+			if (this.isClosed) {
+				throw new IllegalStateException("scope is closed");
+			}
+			if (this.isCancelled) {
+				return AsyncResult.err(new CancellationException("scope was cancelled"));
+			}
+			this.forked++;
+		}
+		var result = new AsyncResult<>(action, this::internalExecute);
+		synchronized (this) {
+			if (!result.isDone()) {
+				this.pending.add(result);
+			}
+		}
+		result.onComplete(completion -> this.internalFinish(result, completion));
+		return result;
+	}
+
+	/**
+	 * Completes once every result forked so far has completed and its
+	 * action has ended. Fails with the first failure of a forked result, if
+	 * there was one; cancelled results do not count as failures.
+	 */
+	public AsyncResult<Void> join() {
+		synchronized (this) {
+			if (this.forked > 0 || this.tasks > 0) {
+				var waiter = new DeferredAsyncResult<Void>();
+				this.joinWaiters.add(waiter);
+				return waiter;
+			}
+			return this.failure == null ? AsyncResult.ok(null) : AsyncResult.err(this.failure);
+		}
+	}
+
+	/**
+	 * Cancel every pending result of this scope, and every result forked
+	 * into it from now on.
+	 */
+	public void cancel() {
+		final List<AsyncResult<?>> cancelled;
+		synchronized (this) {
+			this.isCancelled = true;
+			cancelled = new ArrayList<>(this.pending);
+		}
+		for (var result : cancelled) {
+			result.cancel();
+		}
+	}
+
+	public synchronized boolean isCancelled() {
+		return this.isCancelled;
+	}
+
+	/**
+	 * Stop accepting forks and wait for every forked result and its action
+	 * to end. Failures are
+	 * not thrown here; they are reported by {@link AsyncScope#join()} and by
+	 * the forked results themselves.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			this.isClosed = true;
+		}
+		this.join().await();
+	}
+
+	// region internal
+
+	/**
+	 * Start {@code task} on the executor if a slot is free, or queue it
+	 * until one is. The task of a result that was cancelled while queued
+	 * returns right away.
+	 */
+	private void internalExecute(Runnable task) {
+		synchronized (this) {
+			this.tasks++;
+			if (this.running >= this.maxConcurrency) {
+				this.queued.add(task);
+				return;
+			}
+			this.running++;
+		}
+		this.internalStart(task);
+	}
+
+	private void internalStart(Runnable task) {
+		this.executor.execute(() -> {
+			try {
+				task.run();
+			} finally {
+				Runnable next;
+				final List<DeferredAsyncResult<Void>> joined;
+				Throwable failure;
+				synchronized (this) {
+					next = this.queued.poll();
+					if (next == null) {
+						this.running--;
+					}
+					this.tasks--;
+					joined = this.internalTakeJoinWaiters();
+					failure = this.failure;
+				}
+				if (next != null) {
+					this.internalStart(next);
+				}
+				this.internalReleaseJoinWaiters(joined, failure);
+			}
+		});
+	}
+
+	private void internalFinish(AsyncResult<?> result, Result<?, Throwable> completion) {
+		boolean cancelSiblings = false;
+		final List<DeferredAsyncResult<Void>> joined;
+		Throwable failure;
+		synchronized (this) {
+			this.pending.remove(result);
+			if (this.failure == null && completion.isErr() && !(completion.unwrapErrUnchecked() instanceof CancellationException)) {
+				this.failure = completion.unwrapErrUnchecked();
+				cancelSiblings = this.cancelOnFailure;
+			}
+			this.forked--;
+			joined = this.internalTakeJoinWaiters();
+			failure = this.failure;
+		}
+		if (cancelSiblings) {
+			this.cancel();
+		}
+		this.internalReleaseJoinWaiters(joined, failure);
+	}
+
+	/**
+	 * Take the join waiters once every result has completed and every task
+	 * has ended. Only called while holding the monitor of this scope.
+	 */
+	private List<DeferredAsyncResult<Void>> internalTakeJoinWaiters() {
+		if (this.forked > 0 || this.tasks > 0 || this.joinWaiters.isEmpty()) {
+			return List.of();
+		}
+		final List<DeferredAsyncResult<Void>> joined = new ArrayList<>(this.joinWaiters);
+		this.joinWaiters.clear();
+		return joined;
+	}
+
+	private void internalReleaseJoinWaiters(List<DeferredAsyncResult<Void>> joined, Throwable failure) {
+		for (var waiter : joined) {
+			if (failure == null) {
+				waiter.tryOkay(null);
+			} else {
+				waiter.tryError(failure);
+			}
+		}
+	}
+
+	// endregion
+}
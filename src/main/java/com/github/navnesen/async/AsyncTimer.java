@@ -0,0 +1,47 @@
+package com.github.navnesen.async;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timer shared by all timeouts and delays.
+ * <p>
+ * Deadlines are kept in the heap of a single-thread scheduled executor, so
+ * any number of them costs one thread. Cancelled deadlines are removed
+ * from the heap right away, since most timeouts are cancelled because the
+ * result they guard completed in time. The timer thread only hands due
+ * tasks over to an executor, so slow tasks cannot hold up other deadlines.
+ */
+public class AsyncTimer {
+
+	private static final ScheduledThreadPoolExecutor timer = createTimer();
+
+	private static ScheduledThreadPoolExecutor createTimer() {
+		var timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+			var thread = new Thread(runnable, "async-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.setRemoveOnCancelPolicy(true);
+		return timer;
+	}
+
+	/**
+	 * Run {@code task} on the default executor of {@link AsyncExecutors}
+	 * once {@code delay} has passed.
+	 */
+	public static ScheduledFuture<?> schedule(Duration delay, Runnable task) {
+		return schedule(delay, task, AsyncExecutors.getDefault());
+	}
+
+	/**
+	 * Run {@code task} on {@code executor} once {@code delay} has passed.
+	 * Cancelling the returned future before then removes the task.
+	 */
+	public static ScheduledFuture<?> schedule(Duration delay, Runnable task, Executor executor) {
+		return timer.schedule(() -> executor.execute(task), delay.toNanos(), TimeUnit.NANOSECONDS);
+	}
+}
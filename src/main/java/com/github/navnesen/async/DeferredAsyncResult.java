@@ -24,4 +24,22 @@ public class DeferredAsyncResult<T> extends AsyncResult<T> {
 			Dirty.raise(e);
 		}
 	}
+
+	/**
+	 * Complete with {@code value} unless already completed.
+	 *
+	 * @return whether this call completed the result.
+	 */
+	public boolean tryOkay(T value) {
+		return this.tryComplete(Result.ok(value));
+	}
+
+	/**
+	 * Fail with {@code exception} unless already completed.
+	 *
+	 * @return whether this call completed the result.
+	 */
+	public boolean tryError(Throwable exception) {
+		return this.tryComplete(Result.err(exception));
+	}
 }
@@ -0,0 +1,108 @@
+package com.github.navnesen.async;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How much of the stack of the caller an {@link AsyncResult} action
+ * captures, so that an exception thrown by the action can show where the
+ * action was created rather than only the executor frames.
+ * <ul>
+ *     <li>{@link StackTraceMode#OFF} captures nothing.</li>
+ *     <li>{@link StackTraceMode#sampled(int)} captures the full stack of one
+ *     in {@code n} actions.</li>
+ *     <li>{@link StackTraceMode#LAZY} walks the stack without turning the
+ *     frames into stack trace elements, which is only done when the action
+ *     fails.</li>
+ *     <li>{@link StackTraceMode#FULL} captures the full stack of every
+ *     action.</li>
+ * </ul>
+ * The default is {@link StackTraceMode#FULL}, unless the system property
+ * {@code navnesen.async.stackTraceMode} is set to {@code off}, {@code lazy},
+ * {@code full} or {@code sampled:N}. It can be replaced with
+ * {@link StackTraceMode#setDefault}, and overridden per action.
+ */
+public final class StackTraceMode {
+	public static final StackTraceMode OFF = new StackTraceMode("off", 0, false);
+	public static final StackTraceMode LAZY = new StackTraceMode("lazy", 1, true);
+	public static final StackTraceMode FULL = new StackTraceMode("full", 1, false);
+
+	private static volatile StackTraceMode defaultMode = parse(System.getProperty("navnesen.async.stackTraceMode", "full"));
+
+	private final String name;
+	private final int sampleRate;
+	private final boolean isLazy;
+
+	private StackTraceMode(String name, int sampleRate, boolean isLazy) {
+		this.name = name;
+		this.sampleRate = sampleRate;
+		this.isLazy = isLazy;
+	}
+
+	/**
+	 * Capture the full stack of one in {@code n} actions, picked at random.
+	 */
+	public static StackTraceMode sampled(int n) {
+		if (n < 1) {
+			throw new IllegalArgumentException("sample rate must be positive");
+		}
+		return n == 1 ? FULL : new StackTraceMode("sampled:" + n, n, false);
+	}
+
+	/**
+	 * The mode named {@code off}, {@code lazy}, {@code full} or
+	 * {@code sampled:N}.
+	 */
+	public static StackTraceMode parse(String name) {
+		var normalized = name.trim().toLowerCase(Locale.ROOT);
+		switch (normalized) {
+			case "off":
+				return OFF;
+			case "lazy":
+				return LAZY;
+			case "full":
+				return FULL;
+		}
+		if (normalized.startsWith("sampled:")) {
+			try {
+				return sampled(Integer.parseInt(normalized.substring("sampled:".length())));
+			} catch (NumberFormatException ex) {
+				// reported below
+			}
+		}
+		throw new IllegalArgumentException("unknown stack trace mode '" + name + "'");
+	}
+
+	/**
+	 * Get the mode used when no mode is given to an async action.
+	 */
+	public static StackTraceMode getDefault() {
+		return defaultMode;
+	}
+
+	/**
+	 * Replace the mode used when no mode is given to an async action.
+	 */
+	public static void setDefault(StackTraceMode mode) {
+		if (mode == null) {
+			throw new NullPointerException("mode");
+		}
+		defaultMode = mode;
+	}
+
+	/**
+	 * Whether the next action captures its stack.
+	 */
+	boolean shouldCapture() {
+		return this.sampleRate == 1 || (this.sampleRate > 1 && ThreadLocalRandom.current().nextInt(this.sampleRate) == 0);
+	}
+
+	boolean isLazy() {
+		return this.isLazy;
+	}
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+}
@@ -0,0 +1,18 @@
+package com.github.navnesen.async.common;
+
+import java.util.List;
+
+/**
+ * Thrown when every one of several results failed. The failures are
+ * attached as suppressed exceptions, in the order of the results.
+ */
+public class AggregateException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	public AggregateException(List<Throwable> exceptions) {
+		super("All %d results failed".formatted(exceptions.size()));
+		for (var exception : exceptions) {
+			this.addSuppressed(exception);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.async.AsyncResult;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A bring-your-own-buffer reader of a {@link ReadableByteStream}, which
+ * reads bytes into buffers supplied by the caller.
+ */
+public class ByobReader implements AutoCloseable {
+
+	protected final ReadableByteStream _stream;
+	protected final Reader<ByteBuffer> _reader;
+
+	protected ByobReader(ReadableByteStream stream, Reader<ByteBuffer> reader) {
+		this._stream = stream;
+		this._reader = reader;
+	}
+
+	/**
+	 * Read bytes into the remaining space of {@code target}, advancing its
+	 * position.
+	 *
+	 * @return the number of bytes read, or -1 once the stream is closed and
+	 * all bytes are read.
+	 */
+	public AsyncResult<Integer> read(ByteBuffer target) {
+		if (this._reader._stream.isNone()) {
+			return AsyncResult.err(new RuntimeException("does not have access to stream"));
+		}
+		try {
+			return this._stream.internalReadInto(target);
+		} catch (RuntimeException ex) {
+			return AsyncResult.err(ex);
+		}
+	}
+
+	public void releaseLock() {
+		this._reader.releaseLock();
+	}
+
+	/**
+	 * Alias to {@link ByobReader#releaseLock()}.
+	 */
+	@Override
+	public void close() {
+		this._reader.close();
+	}
+}
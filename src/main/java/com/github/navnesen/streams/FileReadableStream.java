@@ -0,0 +1,67 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.streams.common.ByteBufferPool;
+import com.github.navnesen.streams.common.FileSink;
+import com.github.navnesen.streams.common.MappedFile;
+import com.github.navnesen.util.Option;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A byte stream that reads a file through memory-mapped windows.
+ * <p>
+ * Chunk reads receive read-only slices of the mapped file, and BYOB reads
+ * copy straight from it. Piping into a {@link FileSink} moves the bytes
+ * with {@link java.nio.channels.FileChannel#transferTo} instead of reading
+ * them at all.
+ */
+public class FileReadableStream extends ReadableByteStream {
+
+	protected final MappedFile _file;
+
+	protected FileReadableStream(MappedFile file, int highWaterMark) {
+		super(file::nextChunk, file::readInto, ByteBufferPool.shared(), highWaterMark);
+		this._file = file;
+		this._cancelFunction = Option.some(reason -> {
+			file.close();
+			return AsyncResult.ok(null);
+		});
+	}
+
+	@Override
+	public AsyncResult<Void> pipeTo(WritableStream<ByteBuffer> writable) {
+		if (!(writable._sink instanceof FileSink sink)) {
+			return super.pipeTo(writable);
+		}
+		return this.getReader().andThen(reader -> AsyncResult.run(() -> {
+			try {
+				// whatever was read from the file already goes first
+				final List<ByteBuffer> queued = new ArrayList<>();
+				var remainder = this.internalTakeRemainder();
+				if (remainder != null) {
+					queued.add(remainder);
+				}
+				this.internalDrainQueueTo(queued, Integer.MAX_VALUE);
+				if (!queued.isEmpty()) {
+					writable.writev(queued).unwrap();
+				}
+				// the writable is idle once its last write completed, so the
+				// transfer is not interleaved with queued chunks
+				this._file.transferTo(sink.channel());
+			} catch (Throwable ex) {
+				this._file.close();
+				this.error(ex);
+				writable.internalAbort(ex, Option.some(ex.toString()));
+				reader.close();
+				throw ex;
+			}
+			this.close();
+			reader.close();
+			writable.close().unwrap();
+			return null;
+		}));
+	}
+}
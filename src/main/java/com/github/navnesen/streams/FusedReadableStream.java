@@ -0,0 +1,125 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.streams.common.Emitter;
+import com.github.navnesen.streams.common.Stage;
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.Result;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A stream that runs the chunks of a source stream through a stage.
+ * <p>
+ * Chunks are read from the source in batches while readers wait, and each
+ * chunk runs through the stage synchronously. Adding another stage to a
+ * fused stream that has not started reading yet fuses the two stages,
+ * instead of buffering between them.
+ *
+ * @param <S> the type of the chunks of the source.
+ * @param <T>
+ */
+public class FusedReadableStream<S, T> extends ReadableStream<T> {
+
+	protected final ReadableStream<S> _source;
+	protected final Stage<S, T> _stage;
+	protected final Emitter<S> _head;
+
+	/**
+	 * Set when the stream starts reading its source, or when it is fused
+	 * into a downstream stage, whichever happens first.
+	 */
+	protected final AtomicBoolean _isStarted = new AtomicBoolean(false);
+	protected volatile boolean _isFusedInto = false;
+	protected volatile AsyncResult<Reader<S>> _sourceReader;
+
+	protected FusedReadableStream(ReadableStream<S> source, Stage<S, T> stage) {
+		super(DEFAULT_HIGH_WATER_MARK);
+		this._source = source;
+		this._stage = stage;
+		this._head = stage.wrap(chunk -> {
+			this.enqueue(chunk);
+			return !this._isClosed;
+		});
+		// cancelling the stream cancels its source, unless the source was
+		// handed on to a downstream stage
+		this._cancelFunction = Option.some(reason -> {
+			if (this._isStarted.compareAndSet(false, true)) {
+				return this._source.cancel(reason);
+			}
+			if (this._isFusedInto || this._sourceReader == null) {
+				return AsyncResult.ok(null);
+			}
+			return this._sourceReader.andThen(reader -> reader.cancel(reason));
+		});
+	}
+
+	@Override
+	public <U> ReadableStream<U> pipeThrough(Stage<T, U> stage) {
+		if (!this._isStarted.compareAndSet(false, true)) {
+			return super.pipeThrough(stage);
+		}
+		this._isFusedInto = true;
+		return new FusedReadableStream<>(this._source, this._stage.then(stage));
+	}
+
+	@Override
+	protected void internalPullIfNeeded() {
+		while (this._readWaiterCount.get() > 0 && !this._isClosed && this._storedError.isNone() && this._isPulling.compareAndSet(false, true)) {
+			if (this._isStarted.compareAndSet(false, true)) {
+				this._sourceReader = this._source.getReader();
+			} else if (this._isFusedInto) {
+				this._isPulling.set(false);
+				this.error(new RuntimeException("stream is fused into a downstream stage"));
+				return;
+			}
+			var batch = this._sourceReader.andThen(reader -> this._source.internalReadBatch(Math.max(1, this.desiredSize())));
+			if (!batch.isDone()) {
+				batch.onComplete(result -> {
+					this.internalHandleBatch(result);
+					this._isPulling.set(false);
+					this.internalPullIfNeeded();
+				});
+				return;
+			}
+			this.internalHandleBatch(batch.await());
+			this._isPulling.set(false);
+		}
+	}
+
+	protected void internalHandleBatch(Result<List<S>, Throwable> batch) {
+		if (batch.isErr()) {
+			this.error(batch.unwrapErrUnchecked());
+			this.internalReleaseSource();
+			return;
+		}
+		var chunks = batch.unwrapUnchecked();
+		if (chunks.isEmpty()) {
+			this.close();
+			this.internalReleaseSource();
+			return;
+		}
+		try {
+			for (int i = 0; i < chunks.size(); i++) {
+				if (!this._head.emit(chunks.get(i))) {
+					// a stage ended the stream early. The chunk that ended it
+					// and the rest of the batch go back to the source, for
+					// its next reader. A stage that already emitted part of
+					// that chunk (e.g. after a flatMap) will see it again.
+					this._source.internalUnread(chunks.subList(i, chunks.size()));
+					this.close();
+					this.internalReleaseSource();
+					return;
+				}
+			}
+		} catch (Throwable ex) {
+			this.error(ex);
+			this.internalReleaseSource();
+		}
+	}
+
+	protected void internalReleaseSource() {
+		this._sourceReader.inspect(Reader::close);
+	}
+}
@@ -0,0 +1,235 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.Result;
+import com.github.navnesen.util.common.TypeActionMap;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A stream that maps the chunks of a source stream on an executor, with at
+ * most {@code concurrency} calls in flight.
+ * <p>
+ * Chunks are read from the source while there is room for their results.
+ * In ordered mode, results that complete early wait in a reorder buffer of
+ * {@code concurrency} slots until the results before them are emitted, so
+ * a slow call holds back at most that many results.
+ *
+ * @param <S> the type of the chunks of the source.
+ * @param <T> the type of the mapped chunks.
+ */
+public class ParallelMapStream<S, T> extends ReadableStream<T> {
+
+	protected final ReadableStream<S> _source;
+	protected final TypeActionMap<S, T> _action;
+	protected final int _concurrency;
+	protected final boolean _isOrdered;
+	protected final Executor _executor;
+
+	// Guarded by the monitor of this stream. Chunks are numbered in the
+	// order they are read, and in ordered mode the result of chunk n is
+	// kept at _reorder[n % _concurrency] until it is its turn.
+	protected AsyncResult<Reader<S>> _sourceReader = null;
+	protected boolean _isReadingSource = false;
+	protected boolean _isSourceEnded = false;
+	protected boolean _isSourceCancelled = false;
+	protected int _inFlight = 0;
+	protected int _reordered = 0;
+	protected long _nextIndex = 0;
+	protected long _nextEmit = 0;
+	protected final Object[] _reorder;
+
+	protected ParallelMapStream(ReadableStream<S> source, int concurrency, TypeActionMap<S, T> action, boolean ordered, Executor executor) {
+		super(DEFAULT_HIGH_WATER_MARK);
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("concurrency must be positive");
+		}
+		this._source = source;
+		this._action = action;
+		this._concurrency = concurrency;
+		this._isOrdered = ordered;
+		this._executor = executor;
+		this._reorder = ordered ? new Object[concurrency] : null;
+		this._cancelFunction = Option.some(reason -> {
+			AsyncResult<Reader<S>> sourceReader;
+			synchronized (this) {
+				this._isSourceEnded = true;
+				this._isSourceCancelled = true;
+				sourceReader = this._sourceReader;
+			}
+			if (sourceReader == null) {
+				return this._source.cancel(reason);
+			}
+			return sourceReader.andThen(reader -> reader.cancel(reason));
+		});
+	}
+
+	// region internal
+
+	@Override
+	protected void internalPullIfNeeded() {
+		this.internalPump();
+	}
+
+	/**
+	 * The number of chunks to read from the source now. Only called while
+	 * holding the monitor of this stream.
+	 */
+	protected int internalWanted() {
+		if (this._isReadingSource || this._isSourceEnded || this._storedError.isSome()) {
+			return 0;
+		}
+		int pending = this._inFlight + this._reordered;
+		return Math.min(this._concurrency - pending, this.desiredSize() - pending);
+	}
+
+	/**
+	 * Read chunks from the source and start mapping them, while there is
+	 * room for more calls and their results. A read that completes
+	 * synchronously is handled in the loop rather than by recursion.
+	 */
+	protected void internalPump() {
+		while (true) {
+			AsyncResult<List<S>> batch;
+			synchronized (this) {
+				final int wanted = this.internalWanted();
+				if (wanted <= 0) {
+					return;
+				}
+				this._isReadingSource = true;
+				if (this._sourceReader == null) {
+					this._sourceReader = this._source.getReader();
+				}
+				batch = this._sourceReader.andThen(reader -> reader.readMany(wanted));
+			}
+			if (!batch.isDone()) {
+				batch.onComplete(result -> {
+					this.internalHandleBatch(result);
+					this.internalPump();
+				});
+				return;
+			}
+			this.internalHandleBatch(batch.await());
+		}
+	}
+
+	protected void internalHandleBatch(Result<List<S>, Throwable> batch) {
+		if (batch.isErr()) {
+			synchronized (this) {
+				this._isReadingSource = false;
+				this._isSourceEnded = true;
+				this._isSourceCancelled = true;
+			}
+			this.error(batch.unwrapErrUnchecked());
+			this._sourceReader.inspect(Reader::close);
+			return;
+		}
+		var chunks = batch.unwrapUnchecked();
+		long first;
+		synchronized (this) {
+			this._isReadingSource = false;
+			if (chunks.isEmpty()) {
+				this._isSourceEnded = true;
+				this._sourceReader.inspect(Reader::close);
+				this.internalCloseIfDone();
+				return;
+			}
+			first = this._nextIndex;
+			this._nextIndex += chunks.size();
+			this._inFlight += chunks.size();
+		}
+		for (int i = 0; i < chunks.size(); i++) {
+			final long index = first + i;
+			final S chunk = chunks.get(i);
+			try {
+				this._executor.execute(() -> this.internalRun(index, chunk));
+			} catch (RejectedExecutionException ex) {
+				this.internalFinish(index, Result.err(ex));
+			}
+		}
+	}
+
+	protected void internalRun(long index, S chunk) {
+		Result<T, Throwable> result;
+		try {
+			result = Result.ok(this._action.run(chunk));
+		} catch (Throwable ex) {
+			result = Result.err(ex);
+		}
+		this.internalFinish(index, result);
+		this.internalPump();
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void internalFinish(long index, Result<T, Throwable> result) {
+		synchronized (this) {
+			this._inFlight--;
+			if (!this._isOrdered) {
+				this.internalEmit(result);
+			} else {
+				this._reorder[(int) (index % this._concurrency)] = result;
+				this._reordered++;
+				int slot;
+				while (this._reorder[slot = (int) (this._nextEmit % this._concurrency)] != null) {
+					var next = (Result<T, Throwable>) this._reorder[slot];
+					this._reorder[slot] = null;
+					this._reordered--;
+					this._nextEmit++;
+					this.internalEmit(next);
+				}
+			}
+			this.internalCloseIfDone();
+		}
+		if (this._storedError.isSome()) {
+			this.internalCancelSource();
+		}
+	}
+
+	/**
+	 * Emit a result. A failed call errors the stream, after which the
+	 * results still to come are dropped. Only called while holding the
+	 * monitor of this stream.
+	 */
+	protected void internalEmit(Result<T, Throwable> result) {
+		if (this._storedError.isSome()) {
+			return;
+		}
+		if (result.isErr()) {
+			this._isSourceEnded = true;
+			this.error(result.unwrapErrUnchecked());
+			return;
+		}
+		this.enqueue(result.unwrapUnchecked()).inspectErr(this::error);
+	}
+
+	/**
+	 * Stop reading the source once the stream failed, and cancel it, since
+	 * nothing will read the rest of it.
+	 */
+	protected void internalCancelSource() {
+		AsyncResult<Reader<S>> sourceReader;
+		synchronized (this) {
+			if (this._isSourceCancelled || this._sourceReader == null) {
+				return;
+			}
+			this._isSourceCancelled = true;
+			sourceReader = this._sourceReader;
+		}
+		sourceReader.andThen(reader -> reader.cancel("a mapped call failed"));
+	}
+
+	/**
+	 * Close once the source ended and every result is emitted. Only called
+	 * while holding the monitor of this stream.
+	 */
+	protected void internalCloseIfDone() {
+		if (this._isSourceEnded && this._inFlight == 0 && this._reordered == 0 && !this._isClosed) {
+			this.close();
+		}
+	}
+
+	// endregion
+}
@@ -0,0 +1,96 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.util.Option;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * A stream that subscribes to a {@link Flow.Publisher}.
+ * <p>
+ * The stream never requests more chunks than its queue has room for, so it
+ * needs no buffer beyond its own. Demand is requested in batches of at
+ * least half the queue, rather than one chunk at a time.
+ *
+ * @param <T>
+ */
+public class PublisherReadableStream<T> extends ReadableStream<T> implements Flow.Subscriber<T> {
+
+	// Guarded by the monitor of this stream.
+	protected Flow.Subscription _subscription = null;
+	protected long _outstanding = 0;
+
+	protected PublisherReadableStream(int highWaterMark) {
+		super(highWaterMark);
+		this._cancelFunction = Option.some(reason -> {
+			Flow.Subscription subscription;
+			synchronized (this) {
+				subscription = this._subscription;
+			}
+			if (subscription != null) {
+				subscription.cancel();
+			}
+			return AsyncResult.ok(null);
+		});
+	}
+
+	/**
+	 * Request as much as the queue has room for, once that is at least half
+	 * the queue or nothing is outstanding.
+	 */
+	protected void internalRequestMore() {
+		Flow.Subscription subscription;
+		long wanted;
+		synchronized (this) {
+			if (this._subscription == null || this._isClosed || this._storedError.isSome()) {
+				return;
+			}
+			wanted = this.desiredSize() - this._outstanding;
+			if (wanted <= 0 || (wanted < this._queue.capacity() / 2 && this._outstanding > 0)) {
+				return;
+			}
+			this._outstanding += wanted;
+			subscription = this._subscription;
+		}
+		// the publisher may deliver from within request()
+		subscription.request(wanted);
+	}
+
+	@Override
+	protected void internalPullIfNeeded() {
+		this.internalRequestMore();
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		Objects.requireNonNull(subscription, "subscription");
+		synchronized (this) {
+			if (this._subscription != null) {
+				subscription.cancel();
+				return;
+			}
+			this._subscription = subscription;
+		}
+		this.internalRequestMore();
+	}
+
+	@Override
+	public void onNext(T item) {
+		synchronized (this) {
+			this._outstanding--;
+		}
+		this.enqueue(item).inspectErr(this::error);
+		this.internalRequestMore();
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		this.error(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		this.close();
+	}
+}
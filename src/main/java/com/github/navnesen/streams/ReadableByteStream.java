@@ -0,0 +1,235 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.async.DeferredAsyncResult;
+import com.github.navnesen.streams.common.ByteBufferPool;
+import com.github.navnesen.streams.common.BytePuller;
+import com.github.navnesen.streams.common.DataPuller;
+import com.github.navnesen.util.Option;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * A stream of bytes, carried in {@link ByteBuffer} chunks.
+ * <p>
+ * A byte stream is read either chunk by chunk with a {@link Reader}, or
+ * into buffers supplied by the caller with a {@link ByobReader}. Pulled
+ * chunks are taken from a {@link ByteBufferPool}, and readers give them
+ * back with {@link ReadableByteStream#release}. A BYOB read pulls straight
+ * into the caller's buffer when nothing is queued, so steady-state reads
+ * neither copy nor allocate buffers.
+ * <p>
+ * Chunks enqueued into a byte stream are owned by it: a BYOB read that
+ * used up a chunk returns it to the pool.
+ */
+public class ReadableByteStream extends ReadableStream<ByteBuffer> {
+
+	protected final Option<BytePuller> _bytePuller;
+	protected final ByteBufferPool _pool;
+
+	/**
+	 * What is left of a chunk that a BYOB read only partly consumed. It is
+	 * handed out before any queued chunk.
+	 */
+	protected volatile ByteBuffer _remainder = null;
+
+	/**
+	 * A byte stream that chunks are pushed into.
+	 */
+	public ReadableByteStream() {
+		this(DEFAULT_HIGH_WATER_MARK);
+	}
+
+	/**
+	 * A byte stream that chunks are pushed into.
+	 *
+	 * @param highWaterMark the maximum number of queued chunks, rounded up to
+	 *                      a power of two.
+	 */
+	public ReadableByteStream(int highWaterMark) {
+		super(highWaterMark);
+		this._bytePuller = Option.none();
+		this._pool = ByteBufferPool.shared();
+	}
+
+	/**
+	 * A byte stream that pulls bytes from {@code puller} when readers wait
+	 * for them.
+	 */
+	public ReadableByteStream(BytePuller puller) {
+		this(puller, ByteBufferPool.shared(), DEFAULT_HIGH_WATER_MARK);
+	}
+
+	/**
+	 * A byte stream that pulls bytes from {@code puller} when readers wait
+	 * for them.
+	 *
+	 * @param pool          the pool that chunks for chunk reads are taken
+	 *                      from.
+	 * @param highWaterMark the maximum number of queued chunks, rounded up to
+	 *                      a power of two.
+	 */
+	public ReadableByteStream(BytePuller puller, ByteBufferPool pool, int highWaterMark) {
+		this(pullChunks(puller, pool), puller, pool, highWaterMark);
+	}
+
+	/**
+	 * A byte stream that pulls chunks for chunk reads from
+	 * {@code chunkPuller}, and bytes for BYOB reads from {@code puller}.
+	 */
+	protected ReadableByteStream(DataPuller<ByteBuffer> chunkPuller, BytePuller puller, ByteBufferPool pool, int highWaterMark) {
+		super(chunkPuller, highWaterMark);
+		this._bytePuller = Option.some(puller);
+		this._pool = pool;
+	}
+
+	protected static DataPuller<ByteBuffer> pullChunks(BytePuller puller, ByteBufferPool pool) {
+		return () -> {
+			var buffer = pool.acquire();
+			return puller.pull(buffer).map(count -> {
+				if (count < 0) {
+					pool.release(buffer);
+					return Option.none();
+				}
+				buffer.flip();
+				return Option.some(buffer);
+			});
+		};
+	}
+
+	// region internal
+
+	protected ByteBuffer internalTakeRemainder() {
+		var remainder = this._remainder;
+		if (remainder != null) {
+			this._remainder = null;
+		}
+		return remainder;
+	}
+
+	@Override
+	protected AsyncResult<Option<ByteBuffer>> internalGetOrWaitForData(Option<Duration> timeout) {
+		var remainder = this.internalTakeRemainder();
+		if (remainder != null) {
+			return AsyncResult.ok(Option.some(remainder));
+		}
+		return super.internalGetOrWaitForData(timeout);
+	}
+
+	@Override
+	protected AsyncResult<Integer> internalReadTo(Collection<? super ByteBuffer> target, int max) {
+		var remainder = this.internalTakeRemainder();
+		if (remainder != null) {
+			target.add(remainder);
+			return AsyncResult.ok(1);
+		}
+		return super.internalReadTo(target, max);
+	}
+
+	/**
+	 * Copy as much of {@code chunk} as fits into {@code target}. A chunk
+	 * that is used up goes back to the pool, the rest of one that is not is
+	 * kept for the next read.
+	 */
+	protected int internalCopy(ByteBuffer chunk, ByteBuffer target) {
+		int count = Math.min(chunk.remaining(), target.remaining());
+		if (count == chunk.remaining()) {
+			target.put(chunk);
+			this._pool.release(chunk);
+			return count;
+		}
+		int limit = chunk.limit();
+		chunk.limit(chunk.position() + count);
+		target.put(chunk);
+		chunk.limit(limit);
+		this._remainder = chunk;
+		return count;
+	}
+
+	/**
+	 * Read bytes into {@code target}: from the queued chunks if there are
+	 * any, otherwise straight from the puller, or from the next chunk that
+	 * is pushed.
+	 */
+	protected AsyncResult<Integer> internalReadInto(ByteBuffer target) {
+		if (this._storedError.isSome()) {
+			return AsyncResult.err(this._storedError.unwrapUnchecked());
+		}
+		if (!target.hasRemaining()) {
+			return AsyncResult.ok(0);
+		}
+		var chunk = this.internalTakeRemainder();
+		if (chunk == null && this._readWaiterCount.get() == 0) {
+			chunk = this._queue.poll();
+			if (chunk != null && this._writeWaiterCount.get() > 0) {
+				this.internalDrain();
+			}
+		}
+		if (chunk != null) {
+			return AsyncResult.ok(this.internalCopy(chunk, target));
+		}
+		if (this._bytePuller.isSome() && !this._isClosed && this._isPulling.compareAndSet(false, true)) {
+			return this.internalPullInto(this._bytePuller.unwrapUnchecked(), target);
+		}
+		return this.internalGetOrWaitForData().map(next -> {
+			if (next.isNone()) {
+				return -1;
+			}
+			return this.internalCopy(next.unwrapUnchecked(), target);
+		});
+	}
+
+	/**
+	 * Pull straight into {@code target}. Only called while holding
+	 * {@link ReadableStream#_isPulling}.
+	 */
+	protected AsyncResult<Integer> internalPullInto(BytePuller puller, ByteBuffer target) {
+		AsyncResult<Integer> pulled;
+		try {
+			pulled = puller.pull(target);
+		} catch (Throwable ex) {
+			pulled = AsyncResult.err(ex);
+		}
+		var done = new DeferredAsyncResult<Integer>();
+		pulled.onComplete(result -> {
+			if (result.isErr()) {
+				this.error(result.unwrapErrUnchecked());
+			} else if (result.unwrapUnchecked() < 0) {
+				this.close();
+			}
+			this._isPulling.set(false);
+			// a chunk reader may have started waiting during the pull
+			this.internalPullIfNeeded();
+			if (result.isErr()) {
+				done.tryError(result.unwrapErrUnchecked());
+			} else {
+				done.tryOkay(result.unwrapUnchecked());
+			}
+		});
+		return done;
+	}
+
+	// endregion
+
+	// region user methods
+
+	/**
+	 * Give a chunk that was read from this stream back to its pool. The
+	 * chunk must not be used afterwards.
+	 */
+	public void release(ByteBuffer chunk) {
+		this._pool.release(chunk);
+	}
+
+	/**
+	 * Get a reader that reads into buffers supplied by the caller. It holds
+	 * the lock of the stream like any other reader.
+	 */
+	public AsyncResult<ByobReader> getByobReader() {
+		return this.getReader().map(reader -> new ByobReader(this, reader));
+	}
+
+	// endregion
+}
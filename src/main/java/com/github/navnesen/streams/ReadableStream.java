@@ -1,19 +1,114 @@
 package com.github.navnesen.streams;
 
+import com.github.navnesen.async.AsyncExecutors;
 import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.async.AsyncTimer;
 import com.github.navnesen.async.DeferredAsyncResult;
-import com.github.navnesen.async.common.AsyncAction;
 import com.github.navnesen.streams.common.CancelFunction;
 import com.github.navnesen.streams.common.CancelledException;
 import com.github.navnesen.streams.common.DataPuller;
+import com.github.navnesen.streams.common.MappedFile;
+import com.github.navnesen.streams.common.RingBuffer;
+import com.github.navnesen.streams.common.Stage;
+import com.github.navnesen.streams.common.TeePolicy;
 import com.github.navnesen.sync.Mutex;
 import com.github.navnesen.util.Option;
+import com.github.navnesen.util.Result;
 import com.github.navnesen.util.Tuple;
+import com.github.navnesen.util.common.TypeActionMap;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * A stream of chunks that is read through a {@link Reader}.
+ * <p>
+ * Chunks are either pushed into the stream with {@link ReadableStream#enqueue}
+ * or pulled on demand from a {@link DataPuller}. Up to a high-water mark of
+ * chunks are queued in a lock-free ring buffer. Readers that find the queue
+ * empty are parked, and a new chunk is handed straight to the oldest of
+ * them. Reads complete with {@code Option.none()} once the stream is closed
+ * and drained.
+ *
+ * @param <T>
+ */
 public class ReadableStream<T> {
+	public static final int DEFAULT_HIGH_WATER_MARK = 1024;
+
+	/**
+	 * A stream that chunks are pushed into.
+	 */
+	public ReadableStream() {
+		this(DEFAULT_HIGH_WATER_MARK);
+	}
+
+	/**
+	 * A stream that chunks are pushed into.
+	 *
+	 * @param highWaterMark the maximum number of queued chunks, rounded up to
+	 *                      a power of two.
+	 */
+	public ReadableStream(int highWaterMark) {
+		this._queue = new RingBuffer<>(highWaterMark);
+		this._pullFunction = Option.none();
+	}
+
+	/**
+	 * A stream that pulls chunks from {@code puller} when readers wait for
+	 * them.
+	 */
+	public ReadableStream(DataPuller<T> puller) {
+		this(puller, DEFAULT_HIGH_WATER_MARK);
+	}
+
+	/**
+	 * A stream that pulls chunks from {@code puller} when readers wait for
+	 * them.
+	 *
+	 * @param highWaterMark the maximum number of queued chunks, rounded up to
+	 *                      a power of two.
+	 */
+	public ReadableStream(DataPuller<T> puller, int highWaterMark) {
+		this._queue = new RingBuffer<>(highWaterMark);
+		this._pullFunction = Option.some(puller);
+	}
+
+	/**
+	 * A byte stream that reads the file at {@code path} in chunks of at most
+	 * {@code chunkSize} bytes, through memory-mapped windows of the file.
+	 */
+	public static Result<FileReadableStream, IOException> fromFile(Path path, int chunkSize) {
+		return MappedFile.open(path, chunkSize).map(file -> new FileReadableStream(file, DEFAULT_HIGH_WATER_MARK));
+	}
+
+	/**
+	 * A stream of the items of {@code publisher}, which is subscribed to
+	 * right away.
+	 */
+	public static <T> ReadableStream<T> fromPublisher(Flow.Publisher<T> publisher) {
+		return fromPublisher(publisher, DEFAULT_HIGH_WATER_MARK);
+	}
+
+	/**
+	 * A stream of the items of {@code publisher}, which is subscribed to
+	 * right away. At most {@code highWaterMark} items are requested ahead of
+	 * the readers.
+	 */
+	public static <T> ReadableStream<T> fromPublisher(Flow.Publisher<T> publisher, int highWaterMark) {
+		var stream = new PublisherReadableStream<T>(highWaterMark);
+		publisher.subscribe(stream);
+		return stream;
+	}
 
 	// region cancellation
 
@@ -31,37 +126,44 @@ public class ReadableStream<T> {
 		}
 	}
 
+	/**
+	 * Cancel the stream. Pending reads and waiting producers fail with a
+	 * {@link CancelledException} right away, the current reader is
+	 * detached and the cancel function of the source is run.
+	 */
 	protected AsyncResult<Void> internalCancel(Option<String> reason) {
-		return new AsyncResult<>(() -> {
-			try (var isCancelled = this._isCancelled.lock()) {
-				if (isCancelled.get()) {
-					try (var cancelReason = this._cancelReason.lock()) {
-						throw new CancelledException(cancelReason.get());
-					}
-				}
-				isCancelled.set(true);
+		try (var isCancelled = this._isCancelled.lock()) {
+			if (isCancelled.get()) {
 				try (var cancelReason = this._cancelReason.lock()) {
-					cancelReason.set(reason);
-				}
-				try (var currentReader = this._currentReader.lock()) {
-					try (var readerStream = currentReader.get().expect("no current reader")._stream.lock()) {
-						readerStream.set(Option.none());
-					}
-				}
-				try (var getReaderWaiters = this._getReaderWaiters.lock()) {
-					for (var async : getReaderWaiters.get()) {
-						async.error(new CancelledException(reason));
-					}
-				}
-				{
-					var opt = this._cancelFunction;
-					if (opt.isSome()) {
-						opt.unwrapUnchecked().run(reason).unwrap();
-					}
+					return AsyncResult.err(new CancelledException(cancelReason.get()));
 				}
 			}
-			return null;
-		});
+			isCancelled.set(true);
+			try (var cancelReason = this._cancelReason.lock()) {
+				cancelReason.set(reason);
+			}
+		}
+		this.error(new CancelledException(reason));
+		try (var currentReader = this._currentReader.lock()) {
+			currentReader.get().inspect(reader -> reader._stream = Option.none());
+		}
+		final List<DeferredAsyncResult<Reader<T>>> waiters;
+		try (var getReaderWaiters = this._getReaderWaiters.lock()) {
+			waiters = new ArrayList<>(getReaderWaiters.get());
+			getReaderWaiters.get().clear();
+		}
+		for (var waiter : waiters) {
+			waiter.tryError(new CancelledException(reason));
+		}
+		var opt = this._cancelFunction;
+		if (opt.isNone()) {
+			return AsyncResult.ok(null);
+		}
+		try {
+			return opt.unwrapUnchecked().run(reason);
+		} catch (Throwable ex) {
+			return AsyncResult.err(ex);
+		}
 	}
 
 	// endregion
@@ -80,13 +182,15 @@ public class ReadableStream<T> {
 			}
 
 			try (var getReaderWaiters = this._getReaderWaiters.lock()) {
-				if (getReaderWaiters.get().size() > 0) {
+				// hand the lock to the first waiter that did not give up
+				while (getReaderWaiters.get().size() > 0) {
 					var newReader = new Reader<>(this);
-					_currentReader.set(Option.some(newReader));
-					getReaderWaiters.get().remove(0).okay(newReader);
-				} else {
-					_currentReader.set(Option.none());
+					if (getReaderWaiters.get().remove(0).tryOkay(newReader)) {
+						_currentReader.set(Option.some(newReader));
+						return;
+					}
 				}
+				_currentReader.set(Option.none());
 			}
 		}
 	}
@@ -95,40 +199,504 @@ public class ReadableStream<T> {
 
 	// region data buffer
 
-	protected Mutex<List<T>> _buffer = Mutex.of(new ArrayList<>());
-	protected Mutex<List<DeferredAsyncResult<T>>> _readWaiters = Mutex.of(new ArrayList<>());
+	protected final RingBuffer<T> _queue;
+	protected final Option<DataPuller<T>> _pullFunction;
+	protected final AtomicBoolean _isPulling = new AtomicBoolean(false);
 
-	protected Mutex<Option<DataPuller<T>>> _pullFunction = Mutex.of(Option.none());
+	protected volatile boolean _isClosed = false;
+	protected volatile Option<Throwable> _storedError = Option.none();
 
-	protected void internalGiveValueToWaiterOrWriteToBuffer(T value) {
+	// Chunks a reader took but handed back with internalUnread, which are
+	// read before the queue. Only touched by the holder of the reader.
+	protected volatile ArrayDeque<T> _unread = null;
 
-	}
+	// Readers waiting for a chunk, and producers waiting for space in the
+	// queue. The counts are read without the locks, so that the fast paths
+	// only take a lock when someone is actually waiting. When both locks are
+	// needed, _readWaiters is locked first.
+	protected final Mutex<ArrayDeque<DeferredAsyncResult<Option<T>>>> _readWaiters = Mutex.of(new ArrayDeque<>());
+	protected final AtomicInteger _readWaiterCount = new AtomicInteger(0);
+	protected final Mutex<ArrayDeque<Tuple<T, DeferredAsyncResult<Void>>>> _writeWaiters = Mutex.of(new ArrayDeque<>());
+	protected final AtomicInteger _writeWaiterCount = new AtomicInteger(0);
 
-	protected void internalFailFirstOrCurrentWaiterDueToPullError(Throwable ex) {
+	protected void assertWritable() {
+		if (this._isClosed) {
+			throw new RuntimeException("stream is closed");
+		}
+		if (this._storedError.isSome()) {
+			throw new RuntimeException("stream is errored", this._storedError.unwrapUnchecked());
+		}
+	}
 
+	/**
+	 * Hand the chunk straight to a waiting reader, or add it to the queue.
+	 *
+	 * @return false if the queue is full, or producers are already waiting
+	 * for space.
+	 */
+	protected boolean internalGiveValueToWaiterOrWriteToBuffer(T value) {
+		if (value == null) {
+			throw new NullPointerException("chunk");
+		}
+		if (this._writeWaiterCount.get() > 0) {
+			return false;
+		}
+		if (this._readWaiterCount.get() > 0) {
+			DeferredAsyncResult<Option<T>> waiter = null;
+			try (var readWaiters = this._readWaiters.lock()) {
+				if (!readWaiters.get().isEmpty() && this._queue.isEmpty()) {
+					waiter = readWaiters.get().poll();
+					this._readWaiterCount.decrementAndGet();
+				}
+			}
+			if (waiter != null) {
+				waiter.tryOkay(Option.some(value));
+				return true;
+			}
+		}
+		if (!this._queue.offer(value)) {
+			return false;
+		}
+		if (this._readWaiterCount.get() > 0) {
+			this.internalDrain();
+		}
+		return true;
 	}
 
-	protected AsyncResult<T> internalGetOrWaitForData() {
-		return new AsyncResult<>(() -> {
-			try (var buffer = this._buffer.lock()) {
-				if (buffer.get().size() > 0) {
-					return buffer.get().remove(0);
+	/**
+	 * Move chunks from the queue and from waiting producers to waiting
+	 * readers, and from waiting producers into the queue, for as long as
+	 * possible. Waiters are completed after the locks are released.
+	 */
+	protected void internalDrain() {
+		final List<Tuple<DeferredAsyncResult<Option<T>>, Option<T>>> reads = new ArrayList<>();
+		final List<DeferredAsyncResult<Void>> writes = new ArrayList<>();
+		Option<Throwable> error;
+		try (var readWaiters = this._readWaiters.lock(); var writeWaiters = this._writeWaiters.lock()) {
+			error = this._storedError;
+			if (error.isSome()) {
+				while (!readWaiters.get().isEmpty()) {
+					reads.add(Tuple.of(readWaiters.get().poll(), null));
+				}
+				while (!writeWaiters.get().isEmpty()) {
+					writes.add(writeWaiters.get().poll().b);
+				}
+				this._queue.drainTo(new ArrayList<>(), Integer.MAX_VALUE);
+			} else {
+				while (true) {
+					if (!readWaiters.get().isEmpty()) {
+						T chunk = this._queue.poll();
+						if (chunk == null && !writeWaiters.get().isEmpty()) {
+							var write = writeWaiters.get().poll();
+							writes.add(write.b);
+							chunk = write.a;
+						}
+						if (chunk != null) {
+							reads.add(Tuple.of(readWaiters.get().poll(), Option.some(chunk)));
+							continue;
+						}
+					}
+					if (!writeWaiters.get().isEmpty() && this._queue.offer(writeWaiters.get().peek().a)) {
+						writes.add(writeWaiters.get().poll().b);
+						continue;
+					}
+					break;
+				}
+				if (this._isClosed && this._queue.isEmpty() && writeWaiters.get().isEmpty()) {
+					while (!readWaiters.get().isEmpty()) {
+						reads.add(Tuple.of(readWaiters.get().poll(), Option.none()));
+					}
 				}
 			}
-			var waiter = new DeferredAsyncResult<T>();
-			try (var readWaiters = this._readWaiters.lock()) {
-				readWaiters.get().add(waiter);
-			}
-			try (var _puller = this._pullFunction.lock()) {
-				var puller = _puller.get();
-				if (puller.isSome()) {
-					puller.unwrapUnchecked().pull()
-						.inspect(this::internalGiveValueToWaiterOrWriteToBuffer)
-						.inspectErr(this::internalFailFirstOrCurrentWaiterDueToPullError);
+			this._readWaiterCount.set(readWaiters.get().size());
+			this._writeWaiterCount.set(writeWaiters.get().size());
+		}
+		for (var read : reads) {
+			if (error.isSome()) {
+				read.a.tryError(error.unwrapUnchecked());
+			} else {
+				read.a.tryOkay(read.b);
+			}
+		}
+		for (var write : writes) {
+			if (error.isSome()) {
+				write.tryError(error.unwrapUnchecked());
+			} else {
+				write.tryOkay(null);
+			}
+		}
+	}
+
+	protected AsyncResult<Option<T>> internalGetOrWaitForData() {
+		return this.internalGetOrWaitForData(Option.none());
+	}
+
+	/**
+	 * Take the next chunk, or wait for it. A reader that is still waiting
+	 * when {@code timeout} has passed stops waiting and fails with a
+	 * {@link TimeoutException}.
+	 */
+	protected AsyncResult<Option<T>> internalGetOrWaitForData(Option<Duration> timeout) {
+		if (this._storedError.isSome()) {
+			return AsyncResult.err(this._storedError.unwrapUnchecked());
+		}
+		if (this._unread != null) {
+			return AsyncResult.ok(Option.some(this.internalTakeUnread()));
+		}
+		if (this._readWaiterCount.get() == 0) {
+			T chunk = this._queue.poll();
+			if (chunk != null) {
+				if (this._writeWaiterCount.get() > 0) {
+					this.internalDrain();
 				}
-				return waiter.unwrap();
+				return AsyncResult.ok(Option.some(chunk));
+			}
+		}
+		var waiter = this.internalNewReadWaiter();
+		try (var readWaiters = this._readWaiters.lock()) {
+			// announce the waiter before the last look at the queue, so that a
+			// producer adding a chunk now is guaranteed to see it
+			this._readWaiterCount.incrementAndGet();
+			readWaiters.get().add(waiter);
+		}
+		if (timeout.isSome()) {
+			this.internalExpireReadWaiter(waiter, timeout.unwrapUnchecked());
+		}
+		this.internalDrain();
+		this.internalPullIfNeeded();
+		return waiter;
+	}
+
+	/**
+	 * A pending read. Cancelling it takes it out of the queue first, so a
+	 * chunk is never handed to a reader that gave up; once a chunk is on
+	 * its way to it, it can no longer be cancelled.
+	 */
+	protected DeferredAsyncResult<Option<T>> internalNewReadWaiter() {
+		return new DeferredAsyncResult<>() {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				return ReadableStream.this.internalRemoveReadWaiter(this) && super.cancel(mayInterruptIfRunning);
+			}
+		};
+	}
+
+	/**
+	 * Take {@code waiter} out of the queue of pending reads.
+	 *
+	 * @return false if a chunk was already handed to it.
+	 */
+	protected boolean internalRemoveReadWaiter(DeferredAsyncResult<Option<T>> waiter) {
+		try (var readWaiters = this._readWaiters.lock()) {
+			if (!readWaiters.get().remove(waiter)) {
+				return false;
+			}
+			this._readWaiterCount.decrementAndGet();
+			return true;
+		}
+	}
+
+	/**
+	 * Fail {@code waiter} after {@code timeout}, unless a chunk was handed to
+	 * it before then.
+	 */
+	protected void internalExpireReadWaiter(DeferredAsyncResult<Option<T>> waiter, Duration timeout) {
+		var deadline = AsyncTimer.schedule(timeout, () -> {
+			if (this.internalRemoveReadWaiter(waiter)) {
+				waiter.tryError(new TimeoutException("read timed out after " + timeout));
 			}
 		});
+		waiter.onComplete(result -> deadline.cancel(false));
+	}
+
+	/**
+	 * Hand chunks that were read back to the stream, to be read again, in
+	 * order, before anything else. Only for the holder of the reader, before
+	 * it releases the reader.
+	 */
+	protected void internalUnread(List<T> chunks) {
+		if (chunks.isEmpty()) {
+			return;
+		}
+		var unread = new ArrayDeque<T>(chunks);
+		var previous = this._unread;
+		if (previous != null) {
+			unread.addAll(previous);
+		}
+		this._unread = unread;
+	}
+
+	/**
+	 * Take the first of the chunks handed back with
+	 * {@link ReadableStream#internalUnread}. Only called when there is one.
+	 */
+	protected T internalTakeUnread() {
+		var unread = this._unread;
+		T chunk = unread.poll();
+		if (unread.isEmpty()) {
+			this._unread = null;
+		}
+		return chunk;
+	}
+
+	/**
+	 * Read up to {@code max} chunks. Completes with the chunks that are
+	 * queued, or waits for the first one if none are. An empty list marks
+	 * the end of the stream.
+	 */
+	protected AsyncResult<List<T>> internalReadBatch(int max) {
+		final List<T> chunks = new ArrayList<>();
+		return this.internalReadTo(chunks, max).map(count -> chunks);
+	}
+
+	/**
+	 * Move up to {@code max} chunks to {@code target}. Completes with the
+	 * number of chunks moved once there is at least one, or with -1 at the
+	 * end of the stream.
+	 */
+	protected AsyncResult<Integer> internalReadTo(Collection<? super T> target, int max) {
+		if (max < 1) {
+			throw new IllegalArgumentException("max must be positive");
+		}
+		if (this._storedError.isSome()) {
+			return AsyncResult.err(this._storedError.unwrapUnchecked());
+		}
+		if (this._unread != null) {
+			int count = 0;
+			while (count < max && this._unread != null) {
+				target.add(this.internalTakeUnread());
+				count++;
+			}
+			return AsyncResult.ok(count);
+		}
+		if (this._readWaiterCount.get() == 0) {
+			int count = this.internalDrainQueueTo(target, max);
+			if (count > 0) {
+				return AsyncResult.ok(count);
+			}
+		}
+		return this.internalGetOrWaitForData().map(first -> {
+			if (first.isNone()) {
+				return -1;
+			}
+			target.add(first.unwrapUnchecked());
+			int count = 1;
+			if (max > 1 && this._readWaiterCount.get() == 0) {
+				count += this.internalDrainQueueTo(target, max - 1);
+			}
+			return count;
+		});
+	}
+
+	/**
+	 * Move up to {@code max} queued chunks to {@code target}, and let waiting
+	 * producers fill the space that is freed.
+	 */
+	protected int internalDrainQueueTo(Collection<? super T> target, int max) {
+		int count = this._queue.drainTo(target, max);
+		if (count > 0 && this._writeWaiterCount.get() > 0) {
+			this.internalDrain();
+			if (count < max) {
+				count += this._queue.drainTo(target, max - count);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Pull chunks from the pull function while readers are waiting. A pull
+	 * that completes synchronously is handled in the loop rather than by
+	 * recursion, so synchronous sources do not grow the stack.
+	 */
+	protected void internalPullIfNeeded() {
+		if (this._pullFunction.isNone()) {
+			return;
+		}
+		var puller = this._pullFunction.unwrapUnchecked();
+		while (this._readWaiterCount.get() > 0 && !this._isClosed && this._storedError.isNone() && this._isPulling.compareAndSet(false, true)) {
+			AsyncResult<Option<T>> pulled;
+			try {
+				pulled = puller.pull();
+			} catch (Throwable ex) {
+				pulled = AsyncResult.err(ex);
+			}
+			if (!pulled.isDone()) {
+				pulled.onComplete(result -> {
+					this.internalHandlePull(result);
+					this._isPulling.set(false);
+					this.internalPullIfNeeded();
+				});
+				return;
+			}
+			this.internalHandlePull(pulled.await());
+			this._isPulling.set(false);
+		}
+	}
+
+	protected void internalHandlePull(Result<Option<T>, Throwable> result) {
+		if (result.isErr()) {
+			this.error(result.unwrapErrUnchecked());
+			return;
+		}
+		var chunk = result.unwrapUnchecked();
+		if (chunk.isNone()) {
+			this.close();
+			return;
+		}
+		this.enqueue(chunk.unwrapUnchecked());
+	}
+
+	// endregion
+
+	// region producer methods
+
+	/**
+	 * Add a chunk to the stream if there is room for it.
+	 *
+	 * @return false if the stream already holds as many chunks as its
+	 * high-water mark allows.
+	 */
+	public boolean tryEnqueue(T chunk) {
+		this.assertWritable();
+		return this.internalGiveValueToWaiterOrWriteToBuffer(chunk);
+	}
+
+	/**
+	 * Add a chunk to the stream. The returned result completes once the
+	 * chunk is accepted, which is immediately unless the stream is full.
+	 * Producers should wait for it before enqueuing more chunks.
+	 */
+	public AsyncResult<Void> enqueue(T chunk) {
+		try {
+			if (this.tryEnqueue(chunk)) {
+				return AsyncResult.ok(null);
+			}
+		} catch (RuntimeException ex) {
+			return AsyncResult.err(ex);
+		}
+		DeferredAsyncResult<Void> accepted = new DeferredAsyncResult<>();
+		try (var writeWaiters = this._writeWaiters.lock()) {
+			// announce the waiter before the last look at the queue, so that a
+			// reader taking a chunk now is guaranteed to see it
+			this._writeWaiterCount.incrementAndGet();
+			if (writeWaiters.get().isEmpty() && this._queue.offer(chunk)) {
+				this._writeWaiterCount.decrementAndGet();
+				accepted = null;
+			} else {
+				writeWaiters.get().add(Tuple.of(chunk, accepted));
+			}
+		}
+		this.internalDrain();
+		return accepted == null ? AsyncResult.ok(null) : accepted;
+	}
+
+	/**
+	 * The number of chunks that can be added before the stream is full.
+	 * Zero or less means producers should wait.
+	 */
+	public int desiredSize() {
+		return this._queue.capacity() - this._queue.size() - this._writeWaiterCount.get();
+	}
+
+	/**
+	 * Signal that no more chunks will be added. Readers receive the chunks
+	 * that are already queued, followed by the end of the stream.
+	 */
+	public void close() {
+		this._isClosed = true;
+		this.internalDrain();
+	}
+
+	/**
+	 * Fail the stream. Queued chunks are discarded, and pending and future
+	 * reads fail with {@code exception}.
+	 */
+	public void error(Throwable exception) {
+		if (this._storedError.isSome()) {
+			return;
+		}
+		this._storedError = Option.some(exception);
+		this.internalDrain();
+	}
+
+	// endregion
+
+	// region piping
+
+	/**
+	 * Move chunks from {@code reader} to {@code writable} until the stream
+	 * ends, the writable is saturated or something completes
+	 * asynchronously. Each step reads as many chunks as the writable wants,
+	 * and writes them as one batch.
+	 */
+	protected void internalPipeStep(Reader<T> reader, WritableStream<T> writable, DeferredAsyncResult<Void> done) {
+		while (!done.isDone()) {
+			int desired = writable.desiredSize();
+			if (desired <= 0) {
+				var ready = writable.ready();
+				if (!ready.isDone()) {
+					ready.onComplete(result -> {
+						if (result.isErr()) {
+							this.internalPipeFailFromWritable(reader, done, result.unwrapErrUnchecked());
+						} else {
+							this.internalPipeStep(reader, writable, done);
+						}
+					});
+					return;
+				}
+				if (ready.await().isErr()) {
+					this.internalPipeFailFromWritable(reader, done, ready.await().unwrapErrUnchecked());
+					return;
+				}
+				continue;
+			}
+			var batch = this.internalReadBatch(desired);
+			if (!batch.isDone()) {
+				batch.onComplete(result -> {
+					if (this.internalPipeWriteBatch(reader, writable, done, result)) {
+						this.internalPipeStep(reader, writable, done);
+					}
+				});
+				return;
+			}
+			if (!this.internalPipeWriteBatch(reader, writable, done, batch.await())) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return whether the pipe should keep going.
+	 */
+	protected boolean internalPipeWriteBatch(Reader<T> reader, WritableStream<T> writable, DeferredAsyncResult<Void> done, Result<List<T>, Throwable> batch) {
+		if (batch.isErr()) {
+			var exception = batch.unwrapErrUnchecked();
+			writable.internalAbort(exception, Option.some(exception.toString()));
+			reader.close();
+			done.tryError(exception);
+			return false;
+		}
+		var chunks = batch.unwrapUnchecked();
+		if (chunks.isEmpty()) {
+			reader.close();
+			writable.close().onComplete(result -> {
+				if (result.isErr()) {
+					done.tryError(result.unwrapErrUnchecked());
+				} else {
+					done.tryOkay(null);
+				}
+			});
+			return false;
+		}
+		writable.writev(chunks).inspectErr(exception -> this.internalPipeFailFromWritable(reader, done, exception));
+		return true;
+	}
+
+	protected void internalPipeFailFromWritable(Reader<T> reader, DeferredAsyncResult<Void> done, Throwable exception) {
+		if (!done.tryError(exception)) {
+			return;
+		}
+		reader.cancel(exception.toString()).onComplete(result -> reader.close());
 	}
 
 	// endregion
@@ -146,40 +714,134 @@ public class ReadableStream<T> {
 		return this.getReader().andThen(reader -> reader.cancel(reason));
 	}
 
+	/**
+	 * Lock the stream to a new reader, once the current reader, if any, is
+	 * released. Waiting does not hold a thread or the locks of the stream.
+	 */
 	public AsyncResult<Reader<T>> getReader() {
-		return new AsyncResult<>(() -> {
+		try {
 			this.assertNotCancelled();
-			try (var currentReader = this._currentReader.lock()) {
-				if (currentReader.get().isNone()) {
-					var reader = new Reader<T>(this);
-					currentReader.set(Option.some(reader));
-					return reader;
-				} else {
-					try (var readers = this._getReaderWaiters.lock()) {
-						var waiter = new DeferredAsyncResult<Reader<T>>();
-						readers.get().add(waiter);
-						return waiter.unwrap();
-					}
-				}
+		} catch (CancelledException ex) {
+			return AsyncResult.err(ex);
+		}
+		try (var currentReader = this._currentReader.lock()) {
+			if (currentReader.get().isNone()) {
+				var reader = new Reader<T>(this);
+				currentReader.set(Option.some(reader));
+				return AsyncResult.ok(reader);
 			}
-		});
+			var waiter = new DeferredAsyncResult<Reader<T>>();
+			try (var readers = this._getReaderWaiters.lock()) {
+				readers.get().add(waiter);
+			}
+			return waiter;
+		}
 	}
 
+	/**
+	 * Pipe this stream into the writable side of {@code transformer}, and
+	 * return its readable side.
+	 */
 	public <U> ReadableStream<U> pipeThrough(TransformStream<T, U> transformer) {
-		new AsyncResult<>((AsyncAction<Void>) () -> {
-			return null;
-		}).orElse(ex -> transformer.readable.cancel(ex.getMessage()));
+		this.pipeTo(transformer.writable);
 		return transformer.readable;
 	}
 
+	/**
+	 * Run the chunks of this stream through {@code stage}. Stages added to
+	 * the returned stream before it is read are fused into one.
+	 */
+	public <U> ReadableStream<U> pipeThrough(Stage<T, U> stage) {
+		return new FusedReadableStream<>(this, stage);
+	}
+
+	public <U> ReadableStream<U> map(TypeActionMap<T, U> action) {
+		return this.pipeThrough(Stage.map(action));
+	}
+
+	public ReadableStream<T> filter(TypeActionMap<T, Boolean> predicate) {
+		return this.pipeThrough(Stage.filter(predicate));
+	}
+
+	public <U> ReadableStream<U> flatMap(TypeActionMap<T, Iterable<U>> action) {
+		return this.pipeThrough(Stage.flatMap(action));
+	}
+
+	/**
+	 * Map chunks on the default executor of {@link AsyncExecutors}, with at
+	 * most {@code concurrency} calls in flight.
+	 *
+	 * @param ordered whether results keep the order of the chunks, or are
+	 *                passed on as soon as they are ready.
+	 */
+	public <U> ReadableStream<U> mapParallel(int concurrency, TypeActionMap<T, U> action, boolean ordered) {
+		return this.mapParallel(concurrency, action, ordered, AsyncExecutors.getDefault());
+	}
+
+	/**
+	 * Map chunks on {@code executor}, with at most {@code concurrency} calls
+	 * in flight.
+	 *
+	 * @param ordered whether results keep the order of the chunks, or are
+	 *                passed on as soon as they are ready.
+	 */
+	public <U> ReadableStream<U> mapParallel(int concurrency, TypeActionMap<T, U> action, boolean ordered, Executor executor) {
+		return new ParallelMapStream<>(this, concurrency, action, ordered, executor);
+	}
+
+	/**
+	 * Pass chunks on until the first one that does not match, which ends
+	 * the returned stream. That chunk and the rest of this stream are left
+	 * for the next reader of this stream.
+	 */
+	public ReadableStream<T> takeWhile(TypeActionMap<T, Boolean> predicate) {
+		return this.pipeThrough(Stage.takeWhile(predicate));
+	}
+
+	/**
+	 * Write every chunk of this stream to {@code writable}, then close it.
+	 * Chunks are moved in batches, and reading pauses while the writable is
+	 * saturated. An error in this stream aborts the writable, and an error
+	 * in the writable cancels this stream.
+	 */
 	public AsyncResult<Void> pipeTo(WritableStream<T> writable) {
-		// TODO implement this.
-		return new AsyncResult<>(() -> null);
+		return this.getReader().andThen(reader -> {
+			var done = new DeferredAsyncResult<Void>();
+			this.internalPipeStep(reader, writable, done);
+			return done;
+		});
+	}
+
+	/**
+	 * A publisher of the chunks of this stream. Each subscription holds a
+	 * reader of the stream until it completes or is cancelled.
+	 */
+	public Flow.Publisher<T> toPublisher() {
+		return new StreamPublisher<>(this);
 	}
 
+	/**
+	 * Split this stream into two branches that each receive every chunk. A
+	 * branch may fall at most {@link ReadableStream#DEFAULT_HIGH_WATER_MARK}
+	 * chunks behind the other before the source stops being read.
+	 */
 	public Tuple<ReadableStream<T>, ReadableStream<T>> tee() {
-		// TODO implement this correctly by creating a new buffered readable.
-		return Tuple.of(this, this);
+		return this.tee(DEFAULT_HIGH_WATER_MARK, TeePolicy.BACKPRESSURE);
+	}
+
+	/**
+	 * Split this stream into two branches that each receive every chunk.
+	 * The chunks are buffered once for both branches, and only until both
+	 * have read them.
+	 *
+	 * @param maxLag how many chunks one branch may fall behind the other.
+	 * @param policy what to do when a branch falls further behind: stop
+	 *               reading the source until it catches up, or drop the
+	 *               chunks it has not read yet.
+	 */
+	public Tuple<ReadableStream<T>, ReadableStream<T>> tee(int maxLag, TeePolicy policy) {
+		var buffer = new TeeBuffer<>(this, maxLag, policy);
+		return Tuple.of(buffer.branch(0), buffer.branch(1));
 	}
 	// endregion
 }
@@ -1,26 +1,36 @@
 package com.github.navnesen.streams;
 
 import com.github.navnesen.async.AsyncResult;
-import com.github.navnesen.sync.Mutex;
+import com.github.navnesen.streams.common.CancelledException;
 import com.github.navnesen.util.Dirty;
 import com.github.navnesen.util.Option;
 
+import java.time.Duration;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 
 public class Reader<T> implements AutoCloseable {
 	private final String STREAM_ACCESS_ERR = "does not have access to stream";
 
-	protected final Mutex<Option<ReadableStream<T>>> _stream;
+	/**
+	 * The stream, until the reader is released or the stream is cancelled.
+	 * Only a single consumer uses a reader, so this is a plain volatile
+	 * field rather than a lock taken on every read.
+	 */
+	protected volatile Option<ReadableStream<T>> _stream;
 
 	protected Reader(ReadableStream<T> stream) {
-		this._stream = new Mutex<>(Option.some(stream));
+		this._stream = Option.some(stream);
 	}
 
 	public void releaseLock() {
-		try (var stream = this._stream.lock()) {
-			stream.get().expect(STREAM_ACCESS_ERR)
-				.releaseFrom(this);
-		}
+		this._stream.expect(STREAM_ACCESS_ERR)
+			.releaseFrom(this);
+		this._stream = Option.none();
 	}
 
 	public AsyncResult<Void> cancel() {
@@ -31,26 +41,129 @@ public class Reader<T> implements AutoCloseable {
 		return this.cancel(Option.some(reason));
 	}
 
+	/**
+	 * Cancel the stream. Pending reads fail with a {@link CancelledException}
+	 * right away.
+	 */
 	public AsyncResult<Void> cancel(Option<String> reason) {
-		return new AsyncResult<>(() -> {
-			try (var stream = this._stream.lock()) {
-				return stream.get()
-					.expect(STREAM_ACCESS_ERR)
-					.internalCancel(reason)
-					.await();
-			}
-		});
+		var stream = this._stream;
+		if (stream.isNone()) {
+			return AsyncResult.err(new RuntimeException(STREAM_ACCESS_ERR));
+		}
+		return stream.unwrapUnchecked().internalCancel(reason);
 	}
 
-	public AsyncResult<T> read() {
-		return new AsyncResult<>(() -> {
-			try (var stream = this._stream.lock()) {
-				return stream.get()
-					.expect(STREAM_ACCESS_ERR)
-					.internalGetOrWaitForData()
-					.await();
-			}
-		});
+	/**
+	 * Read the next chunk of the stream, or {@code Option.none()} once the
+	 * stream is closed and all chunks are read.
+	 */
+	public AsyncResult<Option<T>> read() {
+		try {
+			return this._stream.expect(STREAM_ACCESS_ERR).internalGetOrWaitForData();
+		} catch (RuntimeException ex) {
+			return AsyncResult.err(ex);
+		}
+	}
+
+	/**
+	 * Read the next chunk of the stream, or fail with a
+	 * {@link java.util.concurrent.TimeoutException} if none arrives within
+	 * {@code timeout}. A read that times out takes no chunk from the stream.
+	 */
+	public AsyncResult<Option<T>> read(Duration timeout) {
+		try {
+			return this._stream.expect(STREAM_ACCESS_ERR).internalGetOrWaitForData(Option.some(timeout));
+		} catch (RuntimeException ex) {
+			return AsyncResult.err(ex);
+		}
+	}
+
+	/**
+	 * Read up to {@code max} chunks: the chunks that are queued, or the next
+	 * one if none are. An empty list marks the end of the stream.
+	 */
+	public AsyncResult<List<T>> readMany(int max) {
+		try {
+			return this._stream.expect(STREAM_ACCESS_ERR).internalReadBatch(max);
+		} catch (RuntimeException ex) {
+			return AsyncResult.err(ex);
+		}
+	}
+
+	/**
+	 * Move the queued chunks to {@code target}, or the next chunk if none
+	 * are queued.
+	 *
+	 * @return the number of chunks moved, or -1 at the end of the stream.
+	 */
+	public AsyncResult<Integer> drainTo(Collection<? super T> target) {
+		return this.drainTo(target, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Move up to {@code max} of the queued chunks to {@code target}, or the
+	 * next chunk if none are queued.
+	 *
+	 * @return the number of chunks moved, or -1 at the end of the stream.
+	 */
+	public AsyncResult<Integer> drainTo(Collection<? super T> target, int max) {
+		try {
+			return this._stream.expect(STREAM_ACCESS_ERR).internalReadTo(target, max);
+		} catch (RuntimeException ex) {
+			return AsyncResult.err(ex);
+		}
+	}
+
+	/**
+	 * Read chunks into {@code target}, from index 0.
+	 *
+	 * @return the number of chunks read, or -1 at the end of the stream.
+	 */
+	public AsyncResult<Integer> readInto(T[] target) {
+		return this.readInto(target, 0, target.length);
+	}
+
+	/**
+	 * Read up to {@code length} chunks into {@code target}, from index
+	 * {@code offset}.
+	 *
+	 * @return the number of chunks read, or -1 at the end of the stream.
+	 */
+	public AsyncResult<Integer> readInto(T[] target, int offset, int length) {
+		Objects.checkFromIndexSize(offset, length, target.length);
+		return this.drainTo(new ArraySlice<>(target, offset), length);
+	}
+
+	/**
+	 * A collection that writes added values to consecutive slots of an
+	 * array, and iterates over the slots written so far.
+	 */
+	protected static class ArraySlice<T> extends AbstractCollection<T> {
+		protected final T[] array;
+		protected final int offset;
+		protected int size = 0;
+
+		protected ArraySlice(T[] array, int offset) {
+			this.array = array;
+			this.offset = offset;
+		}
+
+		@Override
+		public boolean add(T value) {
+			this.array[this.offset + this.size] = value;
+			this.size++;
+			return true;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return Arrays.asList(this.array).subList(this.offset, this.offset + this.size).iterator();
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
 	}
 
 	/**
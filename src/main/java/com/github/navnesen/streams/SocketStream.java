@@ -0,0 +1,191 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.streams.common.DataSink;
+import com.github.navnesen.streams.common.SelectorLoop;
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.Result;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+/**
+ * A readable and a writable byte stream over a non-blocking
+ * {@link SocketChannel}.
+ * <p>
+ * Reads and writes are tried on the calling thread, and when the socket is
+ * not ready they are finished by a {@link SelectorLoop}, so no thread is
+ * blocked per connection. Closing the writable side shuts down the output
+ * of the socket, and the readable side ends when the peer does the same.
+ */
+public class SocketStream implements AutoCloseable {
+
+	public final ReadableByteStream readable;
+	public final WritableStream<ByteBuffer> writable;
+
+	protected final SocketChannel _channel;
+	protected final SelectorLoop _loop;
+
+	public static Result<SocketStream, IOException> of(SocketChannel channel) {
+		return of(channel, SelectorLoop.shared());
+	}
+
+	/**
+	 * Wrap a connected socket, switching it to non-blocking mode.
+	 */
+	public static Result<SocketStream, IOException> of(SocketChannel channel, SelectorLoop loop) {
+		try {
+			channel.configureBlocking(false);
+			return Result.ok(new SocketStream(channel, loop));
+		} catch (IOException ex) {
+			return Result.err(ex);
+		}
+	}
+
+	public static AsyncResult<SocketStream> connect(SocketAddress address) {
+		return connect(address, SelectorLoop.shared());
+	}
+
+	/**
+	 * Open a connection to {@code address} without blocking.
+	 */
+	public static AsyncResult<SocketStream> connect(SocketAddress address, SelectorLoop loop) {
+		SocketChannel channel;
+		try {
+			channel = SocketChannel.open();
+			channel.configureBlocking(false);
+			if (channel.connect(address)) {
+				return AsyncResult.ok(new SocketStream(channel, loop));
+			}
+		} catch (IOException ex) {
+			return AsyncResult.err(ex);
+		}
+		return loop.whenReady(channel, SelectionKey.OP_CONNECT).andThen(ready -> {
+			try {
+				channel.finishConnect();
+				return AsyncResult.ok(new SocketStream(channel, loop));
+			} catch (IOException ex) {
+				loop.close(channel);
+				return AsyncResult.err(ex);
+			}
+		});
+	}
+
+	public static AsyncResult<SocketStream> accept(ServerSocketChannel server) {
+		return accept(server, SelectorLoop.shared());
+	}
+
+	/**
+	 * Accept the next connection of {@code server} without blocking. The
+	 * server is switched to non-blocking mode.
+	 */
+	public static AsyncResult<SocketStream> accept(ServerSocketChannel server, SelectorLoop loop) {
+		try {
+			server.configureBlocking(false);
+			var channel = server.accept();
+			if (channel != null) {
+				channel.configureBlocking(false);
+				return AsyncResult.ok(new SocketStream(channel, loop));
+			}
+		} catch (IOException ex) {
+			return AsyncResult.err(ex);
+		}
+		return loop.whenReady(server, SelectionKey.OP_ACCEPT).andThen(ready -> accept(server, loop));
+	}
+
+	protected SocketStream(SocketChannel channel, SelectorLoop loop) {
+		this._channel = channel;
+		this._loop = loop;
+		this.readable = new ReadableByteStream(this::internalRead);
+		this.readable._cancelFunction = Option.some(reason -> {
+			try {
+				channel.shutdownInput();
+			} catch (IOException ignored) {
+				// the socket is closed already
+			}
+			return AsyncResult.ok(null);
+		});
+		this.writable = new WritableStream<>(new DataSink<>() {
+			@Override
+			public AsyncResult<Void> write(ByteBuffer chunk) {
+				return SocketStream.this.internalWrite(new ByteBuffer[]{chunk}, 0);
+			}
+
+			@Override
+			public AsyncResult<Void> writev(List<ByteBuffer> chunks) {
+				return SocketStream.this.internalWrite(chunks.toArray(new ByteBuffer[0]), 0);
+			}
+
+			@Override
+			public AsyncResult<Void> close() {
+				try {
+					channel.shutdownOutput();
+					return AsyncResult.ok(null);
+				} catch (IOException ex) {
+					return AsyncResult.err(ex);
+				}
+			}
+
+			@Override
+			public AsyncResult<Void> abort(Option<String> reason) {
+				SocketStream.this.close();
+				return AsyncResult.ok(null);
+			}
+		});
+	}
+
+	/**
+	 * Read into {@code target}, waiting for the socket if nothing is
+	 * available yet.
+	 */
+	protected AsyncResult<Integer> internalRead(ByteBuffer target) {
+		try {
+			int count = this._channel.read(target);
+			if (count != 0 || !target.hasRemaining()) {
+				return AsyncResult.ok(count);
+			}
+		} catch (IOException ex) {
+			return AsyncResult.err(ex);
+		}
+		return this._loop.whenReady(this._channel, SelectionKey.OP_READ).andThen(ready -> this.internalRead(target));
+	}
+
+	/**
+	 * Write {@code buffers} from index {@code first} on with gathering
+	 * writes, waiting for the socket whenever its send buffer is full.
+	 */
+	protected AsyncResult<Void> internalWrite(ByteBuffer[] buffers, int first) {
+		try {
+			while (first < buffers.length) {
+				long count = this._channel.write(buffers, first, buffers.length - first);
+				while (first < buffers.length && !buffers[first].hasRemaining()) {
+					first++;
+				}
+				if (count == 0 && first < buffers.length) {
+					final int next = first;
+					return this._loop.whenReady(this._channel, SelectionKey.OP_WRITE).andThen(ready -> this.internalWrite(buffers, next));
+				}
+			}
+			return AsyncResult.ok(null);
+		} catch (IOException ex) {
+			return AsyncResult.err(ex);
+		}
+	}
+
+	public SocketChannel channel() {
+		return this._channel;
+	}
+
+	/**
+	 * Close the socket. Pending reads and writes fail.
+	 */
+	@Override
+	public void close() {
+		this._loop.close(this._channel);
+	}
+}
@@ -0,0 +1,141 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.util.Result;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Flow.Publisher} of the chunks of a stream.
+ * <p>
+ * Every subscription holds a reader of the stream, so subscribers take
+ * turns like readers do. Demand is served in batches: all the chunks that
+ * are queued, up to the outstanding demand, are read with one
+ * {@link Reader#readMany} call.
+ *
+ * @param <T>
+ */
+public class StreamPublisher<T> implements Flow.Publisher<T> {
+
+	protected final ReadableStream<T> _stream;
+
+	protected StreamPublisher(ReadableStream<T> stream) {
+		this._stream = stream;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber");
+		var subscription = new Subscription<T>(this._stream.getReader(), subscriber);
+		subscriber.onSubscribe(subscription);
+	}
+
+	protected static class Subscription<T> implements Flow.Subscription {
+		protected final AsyncResult<Reader<T>> _reader;
+		protected final Flow.Subscriber<? super T> _subscriber;
+		protected final AtomicLong _demand = new AtomicLong(0);
+
+		// The thread that raises _work from zero runs the drain loop, and
+		// the others only ask it to go around once more.
+		protected final AtomicInteger _work = new AtomicInteger(0);
+		protected volatile boolean _isReading = false;
+		protected volatile boolean _isCancelled = false;
+		protected volatile boolean _isDone = false;
+
+		// Set by an invalid request, and signalled from the drain loop so
+		// that it never overlaps an onNext.
+		protected volatile Throwable _requestError = null;
+
+		protected Subscription(AsyncResult<Reader<T>> reader, Flow.Subscriber<? super T> subscriber) {
+			this._reader = reader;
+			this._subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				this._requestError = new IllegalArgumentException("requested a non-positive number of chunks");
+				this.internalDrain();
+				return;
+			}
+			this._demand.accumulateAndGet(n, (current, added) -> {
+				long sum = current + added;
+				return sum < 0 ? Long.MAX_VALUE : sum;
+			});
+			this.internalDrain();
+		}
+
+		@Override
+		public void cancel() {
+			this._isCancelled = true;
+			this.internalDrain();
+		}
+
+		protected void internalDrain() {
+			if (this._work.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			while (true) {
+				if (!this._isReading && !this._isDone) {
+					if (this._requestError != null && !this._isCancelled) {
+						this._isDone = true;
+						this._reader.inspect(Reader::close);
+						this._subscriber.onError(this._requestError);
+					} else if (this._isCancelled) {
+						this._isDone = true;
+						this._reader.inspect(Reader::close);
+					} else if (this._demand.get() > 0) {
+						this._isReading = true;
+						final int max = (int) Math.min(this._demand.get(), Integer.MAX_VALUE);
+						var batch = this._reader.andThen(reader -> reader.readMany(max));
+						if (batch.isDone()) {
+							this.internalEmit(batch.await());
+							this._isReading = false;
+							continue;
+						}
+						batch.onComplete(result -> {
+							this.internalEmit(result);
+							this._isReading = false;
+							this.internalDrain();
+						});
+					}
+				}
+				missed = this._work.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+		protected void internalEmit(Result<List<T>, Throwable> batch) {
+			if (this._isCancelled || this._requestError != null) {
+				return;
+			}
+			if (batch.isErr()) {
+				this._isDone = true;
+				this._reader.inspect(Reader::close);
+				this._subscriber.onError(batch.unwrapErrUnchecked());
+				return;
+			}
+			var chunks = batch.unwrapUnchecked();
+			if (chunks.isEmpty()) {
+				this._isDone = true;
+				this._reader.inspect(Reader::close);
+				this._subscriber.onComplete();
+				return;
+			}
+			this._demand.addAndGet(-chunks.size());
+			for (var chunk : chunks) {
+				if (this._isCancelled || this._requestError != null) {
+					return;
+				}
+				this._subscriber.onNext(chunk);
+			}
+		}
+	}
+}
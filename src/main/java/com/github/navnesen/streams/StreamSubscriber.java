@@ -0,0 +1,113 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.util.Option;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * A {@link Flow.Subscriber} that writes the items it receives to a
+ * writable stream.
+ * <p>
+ * Demand follows the desired size of the writable. It is requested in
+ * batches of at least half the high-water mark, and only once the writable
+ * is ready for more.
+ *
+ * @param <T>
+ */
+public class StreamSubscriber<T> implements Flow.Subscriber<T> {
+
+	protected final WritableStream<T> _writable;
+
+	// Guarded by the monitor of this subscriber.
+	protected Flow.Subscription _subscription = null;
+	protected long _outstanding = 0;
+	protected boolean _isWaitingForReady = false;
+
+	protected StreamSubscriber(WritableStream<T> writable) {
+		this._writable = writable;
+	}
+
+	protected void internalRequestMore() {
+		Flow.Subscription subscription;
+		long wanted;
+		synchronized (this) {
+			if (this._subscription == null || this._isWaitingForReady) {
+				return;
+			}
+			int desired = this._writable.desiredSize();
+			if (desired <= 0 && this._outstanding == 0) {
+				this._isWaitingForReady = true;
+				subscription = null;
+				wanted = 0;
+			} else {
+				wanted = desired - this._outstanding;
+				if (wanted <= 0 || (wanted < this._writable._highWaterMark / 2 && this._outstanding > 0)) {
+					return;
+				}
+				this._outstanding += wanted;
+				subscription = this._subscription;
+			}
+		}
+		if (subscription == null) {
+			// nothing can be requested until the writable has room again
+			this._writable.ready().onComplete(result -> {
+				synchronized (this) {
+					this._isWaitingForReady = false;
+				}
+				if (result.isErr()) {
+					this.internalCancel();
+				} else {
+					this.internalRequestMore();
+				}
+			});
+			return;
+		}
+		// the publisher may deliver from within request()
+		subscription.request(wanted);
+	}
+
+	protected void internalCancel() {
+		Flow.Subscription subscription;
+		synchronized (this) {
+			subscription = this._subscription;
+		}
+		if (subscription != null) {
+			subscription.cancel();
+		}
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		Objects.requireNonNull(subscription, "subscription");
+		synchronized (this) {
+			if (this._subscription != null) {
+				subscription.cancel();
+				return;
+			}
+			this._subscription = subscription;
+		}
+		this.internalRequestMore();
+	}
+
+	@Override
+	public void onNext(T item) {
+		synchronized (this) {
+			this._outstanding--;
+		}
+		this._writable.write(item).inspectErr(exception -> this.internalCancel());
+		this.internalRequestMore();
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		// writes fail with the exception of the publisher itself, and the
+		// sink gets its class and message as the reason
+		this._writable.internalAbort(throwable, Option.some(throwable.toString()));
+	}
+
+	@Override
+	public void onComplete() {
+		this._writable.close();
+	}
+}
@@ -0,0 +1,259 @@
+package com.github.navnesen.streams;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.async.DeferredAsyncResult;
+import com.github.navnesen.streams.common.TeePolicy;
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.Result;
+import com.github.navnesen.util.Tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The state shared by the two branches of a tee.
+ * <p>
+ * Chunks read from the source are stored once, in a circular buffer, and
+ * each branch reads them through its own cursor. A chunk is let go once
+ * both branches have read it, so the buffer never holds more than the gap
+ * between the slowest and the fastest branch, which is capped at
+ * {@code maxLag} chunks.
+ *
+ * @param <T>
+ */
+public class TeeBuffer<T> {
+	protected static final int BRANCHES = 2;
+
+	protected final AsyncResult<Reader<T>> _source;
+	protected final TeePolicy _policy;
+	protected final int _maxLag;
+
+	// Guarded by the monitor of this buffer. Chunk number n is stored at
+	// _chunks[n & _mask], for _head <= n < _tail.
+	protected final Object[] _chunks;
+	protected final int _mask;
+	protected long _head = 0;
+	protected long _tail = 0;
+	protected final long[] _cursors = new long[BRANCHES];
+	protected final boolean[] _isCancelled = new boolean[BRANCHES];
+	protected final List<Option<DeferredAsyncResult<Option<T>>>> _pendingPulls = new ArrayList<>();
+	protected final List<Option<DeferredAsyncResult<Option<T>>>> _lagWaiters = new ArrayList<>();
+	protected boolean _isReadingSource = false;
+	protected boolean _isEnded = false;
+	protected Option<Throwable> _storedError = Option.none();
+
+	protected TeeBuffer(ReadableStream<T> source, int maxLag, TeePolicy policy) {
+		if (maxLag < 1 || maxLag > 1 << 30) {
+			throw new IllegalArgumentException("max lag must be between 1 and 2^30");
+		}
+		int size = Integer.highestOneBit(maxLag);
+		if (size < maxLag) {
+			size <<= 1;
+		}
+		this._source = source.getReader();
+		this._policy = policy;
+		this._maxLag = maxLag;
+		this._chunks = new Object[size];
+		this._mask = size - 1;
+		for (int i = 0; i < BRANCHES; i++) {
+			this._pendingPulls.add(Option.none());
+			this._lagWaiters.add(Option.none());
+		}
+	}
+
+	/**
+	 * Create the readable stream of a branch.
+	 */
+	protected ReadableStream<T> branch(int branch) {
+		// the branch pulls on demand, so its own queue holds at most a chunk
+		var stream = new ReadableStream<T>(() -> this.pull(branch), 1);
+		stream._cancelFunction = Option.some(reason -> this.cancel(branch, reason));
+		return stream;
+	}
+
+	/**
+	 * The cursor of the slowest branch that is not cancelled. Must hold the
+	 * monitor.
+	 */
+	protected long minCursor() {
+		long min = this._tail;
+		for (int i = 0; i < BRANCHES; i++) {
+			if (!this._isCancelled[i]) {
+				min = Math.min(min, this._cursors[i]);
+			}
+		}
+		return min;
+	}
+
+	/**
+	 * Detach a cancelled branch, so that it no longer holds back the other
+	 * one. The source is cancelled once every branch is.
+	 */
+	protected AsyncResult<Void> cancel(int branch, Option<String> reason) {
+		final List<Integer> resumed = new ArrayList<>();
+		Option<DeferredAsyncResult<Option<T>>> pending;
+		boolean isLastBranch = true;
+		synchronized (this) {
+			if (this._isCancelled[branch]) {
+				return AsyncResult.ok(null);
+			}
+			this._isCancelled[branch] = true;
+			this.trim();
+			pending = this._pendingPulls.get(branch).or(this._lagWaiters.get(branch));
+			this._pendingPulls.set(branch, Option.none());
+			this._lagWaiters.set(branch, Option.none());
+			for (int i = 0; i < BRANCHES; i++) {
+				if (!this._isCancelled[i]) {
+					isLastBranch = false;
+					if (this._lagWaiters.get(i).isSome()) {
+						resumed.add(i);
+					}
+				}
+			}
+		}
+		pending.inspect(waiter -> waiter.tryOkay(Option.none()));
+		for (var other : resumed) {
+			this.resume(other);
+		}
+		if (!isLastBranch) {
+			return AsyncResult.ok(null);
+		}
+		return this._source.andThen(reader -> reader.cancel(reason));
+	}
+
+	/**
+	 * Take the next chunk of a branch, and let go of chunks every branch
+	 * has read. Must hold the monitor.
+	 *
+	 * @return the chunk, and a branch waiting for the space that was freed.
+	 */
+	protected Tuple<T, Option<Integer>> take(int branch) {
+		@SuppressWarnings("unchecked") final T chunk = (T) this._chunks[(int) this._cursors[branch] & this._mask];
+		this._cursors[branch]++;
+		this.trim();
+		Option<Integer> resumed = Option.none();
+		for (int i = 0; i < BRANCHES; i++) {
+			if (this._lagWaiters.get(i).isSome() && this._tail - this._head < this._maxLag) {
+				resumed = Option.some(i);
+			}
+		}
+		return Tuple.of(chunk, resumed);
+	}
+
+	protected void trim() {
+		long min = this.minCursor();
+		while (this._head < min) {
+			this._chunks[(int) this._head & this._mask] = null;
+			this._head++;
+		}
+	}
+
+	protected AsyncResult<Option<T>> pull(int branch) {
+		DeferredAsyncResult<Option<T>> waiter = new DeferredAsyncResult<>();
+		Tuple<T, Option<Integer>> taken = null;
+		var readSource = false;
+		synchronized (this) {
+			if (this._cursors[branch] < this._tail) {
+				taken = this.take(branch);
+			} else if (this._storedError.isSome()) {
+				return AsyncResult.err(this._storedError.unwrapUnchecked());
+			} else if (this._isEnded) {
+				return AsyncResult.ok(Option.none());
+			} else if (this._policy == TeePolicy.BACKPRESSURE && this._tail - this._head >= this._maxLag) {
+				// wait until the slow branch frees up space
+				this._lagWaiters.set(branch, Option.some(waiter));
+				return waiter;
+			}
+			if (taken == null) {
+				this._pendingPulls.set(branch, Option.some(waiter));
+				if (!this._isReadingSource) {
+					this._isReadingSource = true;
+					readSource = true;
+				}
+			}
+		}
+		if (taken != null) {
+			taken.b.inspect(this::resume);
+			return AsyncResult.ok(Option.some(taken.a));
+		}
+		if (readSource) {
+			this._source
+				.andThen(Reader::read)
+				.onComplete(this::handleSourceChunk);
+		}
+		return waiter;
+	}
+
+	/**
+	 * Retry the pull of a branch that waited for the slow branch.
+	 */
+	protected void resume(int branch) {
+		Option<DeferredAsyncResult<Option<T>>> waiter;
+		synchronized (this) {
+			waiter = this._lagWaiters.get(branch);
+			this._lagWaiters.set(branch, Option.none());
+		}
+		waiter.inspect(deferred -> this.pull(branch).onComplete(result -> complete(deferred, result)));
+	}
+
+	protected void handleSourceChunk(Result<Option<T>, Throwable> result) {
+		final List<Tuple<DeferredAsyncResult<Option<T>>, Result<Option<T>, Throwable>>> completions = new ArrayList<>();
+		final List<Integer> resumed = new ArrayList<>();
+		synchronized (this) {
+			this._isReadingSource = false;
+			if (result.isErr()) {
+				this._storedError = Option.some(result.unwrapErrUnchecked());
+			} else if (result.unwrapUnchecked().isNone()) {
+				this._isEnded = true;
+			} else {
+				if (this._tail - this._head >= this._maxLag) {
+					// only happens with TeePolicy.DROP: skip the slow branches
+					// past the oldest chunk to make room
+					for (int i = 0; i < BRANCHES; i++) {
+						this._cursors[i] = Math.max(this._cursors[i], this._tail - this._maxLag + 1);
+					}
+					this.trim();
+				}
+				this._chunks[(int) this._tail & this._mask] = result.unwrapUnchecked().unwrapUnchecked();
+				this._tail++;
+			}
+			for (int i = 0; i < BRANCHES; i++) {
+				var pending = this._pendingPulls.get(i);
+				if (pending.isNone()) {
+					continue;
+				}
+				this._pendingPulls.set(i, Option.none());
+				if (this._cursors[i] < this._tail) {
+					var taken = this.take(i);
+					taken.b.inspect(resumed::add);
+					completions.add(Tuple.of(pending.unwrapUnchecked(), Result.ok(Option.some(taken.a))));
+				} else if (result.isErr()) {
+					completions.add(Tuple.of(pending.unwrapUnchecked(), Result.err(result.unwrapErrUnchecked())));
+				} else {
+					completions.add(Tuple.of(pending.unwrapUnchecked(), Result.ok(Option.none())));
+				}
+			}
+			if (this._isEnded || this._storedError.isSome()) {
+				for (int i = 0; i < BRANCHES; i++) {
+					if (this._lagWaiters.get(i).isSome()) {
+						resumed.add(i);
+					}
+				}
+			}
+		}
+		for (var completion : completions) {
+			complete(completion.a, completion.b);
+		}
+		for (var branch : resumed) {
+			this.resume(branch);
+		}
+	}
+
+	protected static <T> void complete(DeferredAsyncResult<T> deferred, Result<T, Throwable> result) {
+		if (result.isErr()) {
+			deferred.tryError(result.unwrapErrUnchecked());
+		} else {
+			deferred.tryOkay(result.unwrapUnchecked());
+		}
+	}
+}
@@ -1,8 +1,92 @@
 package com.github.navnesen.streams;
 
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.streams.common.CancelledException;
+import com.github.navnesen.streams.common.DataSink;
+import com.github.navnesen.streams.common.Emitter;
+import com.github.navnesen.streams.common.Stage;
+import com.github.navnesen.util.Option;
+
+import java.util.List;
+
+/**
+ * A pair of streams where the chunks written to {@code writable} run
+ * through a stage and come out of {@code readable}.
+ *
+ * @param <I> the type of the chunks written.
+ * @param <O> the type of the chunks read.
+ */
 public class TransformStream<I, O> {
 
-	public WritableStream<I> writable;
-	public ReadableStream<O> readable;
+	public static <T> TransformStream<T, T> identity() {
+		return new TransformStream<>(Stage.identity());
+	}
+
+	public final WritableStream<I> writable;
+	public final ReadableStream<O> readable;
+
+	protected final Emitter<I> _head;
+	protected AsyncResult<Void> _lastEnqueue = AsyncResult.ok(null);
+	protected boolean _isStopped = false;
+
+	public TransformStream(Stage<I, O> stage) {
+		this(stage, ReadableStream.DEFAULT_HIGH_WATER_MARK);
+	}
+
+	/**
+	 * @param highWaterMark the high-water mark of both sides.
+	 */
+	public TransformStream(Stage<I, O> stage, int highWaterMark) {
+		this.readable = new ReadableStream<>(highWaterMark);
+		this._head = stage.wrap(chunk -> {
+			this._lastEnqueue = this.readable.enqueue(chunk);
+			return true;
+		});
+		this.writable = new WritableStream<>(new DataSink<>() {
+			@Override
+			public AsyncResult<Void> write(I chunk) {
+				return TransformStream.this.internalTransform(List.of(chunk));
+			}
+
+			@Override
+			public AsyncResult<Void> writev(List<I> chunks) {
+				return TransformStream.this.internalTransform(chunks);
+			}
+
+			@Override
+			public AsyncResult<Void> close() {
+				TransformStream.this.readable.close();
+				return AsyncResult.ok(null);
+			}
+
+			@Override
+			public AsyncResult<Void> abort(Option<String> reason) {
+				TransformStream.this.readable.error(new CancelledException(reason));
+				return AsyncResult.ok(null);
+			}
+		}, highWaterMark);
+	}
 
+	/**
+	 * Run written chunks through the stage. The writable never runs two
+	 * sink operations at once, so this is never called concurrently.
+	 *
+	 * @return a result that completes once the readable side accepted the
+	 * last chunk, which makes the writable side wait while the readable
+	 * side is full.
+	 */
+	protected AsyncResult<Void> internalTransform(List<I> chunks) {
+		if (this._isStopped) {
+			return AsyncResult.ok(null);
+		}
+		this._lastEnqueue = AsyncResult.ok(null);
+		for (var chunk : chunks) {
+			if (!this._head.emit(chunk)) {
+				this._isStopped = true;
+				this.readable.close();
+				break;
+			}
+		}
+		return this._lastEnqueue;
+	}
 }
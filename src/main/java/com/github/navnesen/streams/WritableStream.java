@@ -1,4 +1,362 @@
 package com.github.navnesen.streams;
 
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.async.DeferredAsyncResult;
+import com.github.navnesen.streams.common.CancelledException;
+import com.github.navnesen.streams.common.DataSink;
+import com.github.navnesen.streams.common.FileSink;
+import com.github.navnesen.sync.Mutex;
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.Result;
+import com.github.navnesen.util.Tuple;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A stream that writes chunks to a {@link DataSink}.
+ * <p>
+ * Writes are queued and handed to the sink one operation at a time. When
+ * more than one chunk is waiting, they are handed over together with
+ * {@link DataSink#writev}. Producers should respect
+ * {@link WritableStream#desiredSize()} and wait for
+ * {@link WritableStream#ready()} when the queue is full.
+ *
+ * @param <T>
+ */
 public class WritableStream<T> {
+	public static final int DEFAULT_HIGH_WATER_MARK = 1024;
+
+	protected final DataSink<T> _sink;
+	protected final int _highWaterMark;
+
+	// Chunks waiting for the sink. _queuedCount also counts the chunks the
+	// sink is currently writing.
+	protected final Mutex<ArrayDeque<Tuple<T, DeferredAsyncResult<Void>>>> _writeQueue = Mutex.of(new ArrayDeque<>());
+	protected final AtomicInteger _queuedCount = new AtomicInteger(0);
+	protected final AtomicBoolean _isWriting = new AtomicBoolean(false);
+	protected final Mutex<ArrayDeque<DeferredAsyncResult<Void>>> _readyWaiters = Mutex.of(new ArrayDeque<>());
+
+	protected volatile Option<DeferredAsyncResult<Void>> _closeResult = Option.none();
+	protected final AtomicBoolean _isSinkClosed = new AtomicBoolean(false);
+	protected volatile Option<Throwable> _storedError = Option.none();
+
+	/**
+	 * A stream that writes byte chunks to the file at {@code path}, which is
+	 * created or truncated.
+	 */
+	public static Result<WritableStream<ByteBuffer>, IOException> toFile(Path path) {
+		return FileSink.open(path).map(WritableStream::new);
+	}
+
+	public WritableStream(DataSink<T> sink) {
+		this(sink, DEFAULT_HIGH_WATER_MARK);
+	}
+
+	/**
+	 * @param highWaterMark the number of queued chunks above which
+	 *                      {@link WritableStream#desiredSize()} turns
+	 *                      negative.
+	 */
+	public WritableStream(DataSink<T> sink, int highWaterMark) {
+		if (highWaterMark < 1) {
+			throw new IllegalArgumentException("high-water mark must be positive");
+		}
+		this._sink = sink;
+		this._highWaterMark = highWaterMark;
+	}
+
+	// region internal
+
+	protected Option<Throwable> internalWriteError() {
+		if (this._storedError.isSome()) {
+			return this._storedError;
+		}
+		if (this._closeResult.isSome()) {
+			return Option.some(new RuntimeException("stream is closed"));
+		}
+		return Option.none();
+	}
+
+	/**
+	 * Hand the queued chunks to the sink, until the queue is empty or the
+	 * sink completes asynchronously. Synchronous sinks are handled in the
+	 * loop rather than by recursion.
+	 */
+	protected void internalFlush() {
+		while (this._isWriting.compareAndSet(false, true)) {
+			final List<Tuple<T, DeferredAsyncResult<Void>>> batch = new ArrayList<>();
+			try (var writeQueue = this._writeQueue.lock()) {
+				while (!writeQueue.get().isEmpty()) {
+					batch.add(writeQueue.get().poll());
+				}
+			}
+			if (batch.isEmpty()) {
+				this.internalCloseSinkIfDone();
+				this._isWriting.set(false);
+				// a write or a close may have arrived while the flag was held
+				if (this.internalHasQueuedWrites() || this.internalHasPendingClose()) {
+					continue;
+				}
+				return;
+			}
+			if (this._storedError.isSome()) {
+				this.internalFinishBatch(batch, Result.err(this._storedError.unwrapUnchecked()));
+				this._isWriting.set(false);
+				continue;
+			}
+
+			AsyncResult<Void> written;
+			try {
+				if (batch.size() == 1) {
+					written = this._sink.write(batch.get(0).a);
+				} else {
+					final List<T> chunks = new ArrayList<>(batch.size());
+					for (var write : batch) {
+						chunks.add(write.a);
+					}
+					written = this._sink.writev(chunks);
+				}
+			} catch (Throwable ex) {
+				written = AsyncResult.err(ex);
+			}
+			if (!written.isDone()) {
+				written.onComplete(result -> {
+					this.internalFinishBatch(batch, result);
+					this._isWriting.set(false);
+					this.internalFlush();
+				});
+				return;
+			}
+			this.internalFinishBatch(batch, written.await());
+			this._isWriting.set(false);
+		}
+	}
+
+	protected boolean internalHasQueuedWrites() {
+		try (var writeQueue = this._writeQueue.lock()) {
+			return !writeQueue.get().isEmpty();
+		}
+	}
+
+	protected boolean internalHasPendingClose() {
+		return this._closeResult.isSome() && !this._isSinkClosed.get() && this._storedError.isNone();
+	}
+
+	protected void internalFinishBatch(List<Tuple<T, DeferredAsyncResult<Void>>> batch, Result<Void, Throwable> result) {
+		if (result.isErr()) {
+			this.internalFail(result.unwrapErrUnchecked());
+		}
+		this._queuedCount.addAndGet(-batch.size());
+		for (var write : batch) {
+			if (result.isErr()) {
+				write.b.tryError(result.unwrapErrUnchecked());
+			} else {
+				write.b.tryOkay(null);
+			}
+		}
+		this.internalNotifyReady();
+	}
+
+	/**
+	 * Close the sink once a close is requested and every chunk is written.
+	 * Only called while holding {@link WritableStream#_isWriting}.
+	 */
+	protected void internalCloseSinkIfDone() {
+		if (this._closeResult.isNone() || this._storedError.isSome() || this._queuedCount.get() > 0) {
+			return;
+		}
+		if (!this._isSinkClosed.compareAndSet(false, true)) {
+			return;
+		}
+		var closeResult = this._closeResult.unwrapUnchecked();
+		AsyncResult<Void> closed;
+		try {
+			closed = this._sink.close();
+		} catch (Throwable ex) {
+			closed = AsyncResult.err(ex);
+		}
+		closed.onComplete(result -> {
+			if (result.isErr()) {
+				closeResult.tryError(result.unwrapErrUnchecked());
+			} else {
+				closeResult.tryOkay(null);
+			}
+		});
+	}
+
+	/**
+	 * Put the stream in the errored state. Queued chunks are discarded and
+	 * their writes fail, as do pending {@link WritableStream#ready()} and
+	 * {@link WritableStream#close()} calls.
+	 */
+	protected void internalFail(Throwable exception) {
+		if (this._storedError.isSome()) {
+			return;
+		}
+		this._storedError = Option.some(exception);
+		final List<Tuple<T, DeferredAsyncResult<Void>>> discarded = new ArrayList<>();
+		try (var writeQueue = this._writeQueue.lock()) {
+			while (!writeQueue.get().isEmpty()) {
+				discarded.add(writeQueue.get().poll());
+			}
+		}
+		this._queuedCount.addAndGet(-discarded.size());
+		for (var write : discarded) {
+			write.b.tryError(exception);
+		}
+		this._closeResult.inspect(closeResult -> closeResult.tryError(exception));
+		this.internalNotifyReady();
+	}
+
+	protected void internalNotifyReady() {
+		final List<DeferredAsyncResult<Void>> ready = new ArrayList<>();
+		try (var readyWaiters = this._readyWaiters.lock()) {
+			if (this.desiredSize() > 0 || this._storedError.isSome()) {
+				ready.addAll(readyWaiters.get());
+				readyWaiters.get().clear();
+			}
+		}
+		for (var waiter : ready) {
+			if (this._storedError.isSome()) {
+				waiter.tryError(this._storedError.unwrapUnchecked());
+			} else {
+				waiter.tryOkay(null);
+			}
+		}
+	}
+
+	// endregion
+
+	// region user methods
+
+	/**
+	 * Queue a chunk for writing. The returned result completes once the
+	 * sink has written it.
+	 */
+	public AsyncResult<Void> write(T chunk) {
+		return this.writev(List.of(chunk));
+	}
+
+	/**
+	 * Queue several chunks for writing. The returned result completes once
+	 * the sink has written all of them.
+	 */
+	public AsyncResult<Void> writev(List<T> chunks) {
+		var error = this.internalWriteError();
+		if (error.isSome()) {
+			return AsyncResult.err(error.unwrapUnchecked());
+		}
+		if (chunks.isEmpty()) {
+			return AsyncResult.ok(null);
+		}
+		final List<DeferredAsyncResult<Void>> written = new ArrayList<>(chunks.size());
+		try (var writeQueue = this._writeQueue.lock()) {
+			for (var chunk : chunks) {
+				var waiter = new DeferredAsyncResult<Void>();
+				writeQueue.get().add(Tuple.of(chunk, waiter));
+				written.add(waiter);
+			}
+			this._queuedCount.addAndGet(chunks.size());
+		}
+		this.internalFlush();
+		// chunks are written in order, so the last one completes last
+		return written.get(written.size() - 1);
+	}
+
+	/**
+	 * A subscriber that writes the items it receives to this stream, and
+	 * closes or aborts it when the publisher completes or fails.
+	 */
+	public Flow.Subscriber<T> toSubscriber() {
+		return new StreamSubscriber<>(this);
+	}
+
+	/**
+	 * The number of chunks that can be written before the queue reaches its
+	 * high-water mark. Zero or less means producers should wait for
+	 * {@link WritableStream#ready()}.
+	 */
+	public int desiredSize() {
+		return this._highWaterMark - this._queuedCount.get();
+	}
+
+	/**
+	 * Completes once the desired size is positive, or fails when the stream
+	 * errors.
+	 */
+	public AsyncResult<Void> ready() {
+		if (this._storedError.isSome()) {
+			return AsyncResult.err(this._storedError.unwrapUnchecked());
+		}
+		if (this.desiredSize() > 0) {
+			return AsyncResult.ok(null);
+		}
+		var waiter = new DeferredAsyncResult<Void>();
+		try (var readyWaiters = this._readyWaiters.lock()) {
+			readyWaiters.get().add(waiter);
+		}
+		// the queue may have drained before the waiter was added
+		this.internalNotifyReady();
+		return waiter;
+	}
+
+	/**
+	 * Close the stream once the queued chunks are written. The returned
+	 * result completes once the sink is closed.
+	 */
+	public AsyncResult<Void> close() {
+		var error = this.internalWriteError();
+		if (error.isSome()) {
+			return AsyncResult.err(error.unwrapUnchecked());
+		}
+		var closeResult = new DeferredAsyncResult<Void>();
+		this._closeResult = Option.some(closeResult);
+		this.internalFlush();
+		return closeResult;
+	}
+
+	public AsyncResult<Void> abort() {
+		return this.abort(Option.none());
+	}
+
+	public AsyncResult<Void> abort(String reason) {
+		return this.abort(Option.some(reason));
+	}
+
+	/**
+	 * Discard the queued chunks and abort the sink. Pending and future
+	 * writes fail with a {@link CancelledException}.
+	 */
+	public AsyncResult<Void> abort(Option<String> reason) {
+		return this.internalAbort(new CancelledException(reason), reason);
+	}
+
+	/**
+	 * Abort the sink with {@code reason}, and fail pending and future writes
+	 * with {@code exception}.
+	 */
+	protected AsyncResult<Void> internalAbort(Throwable exception, Option<String> reason) {
+		if (this._storedError.isSome()) {
+			return AsyncResult.ok(null);
+		}
+		this.internalFail(exception);
+		if (!this._isSinkClosed.compareAndSet(false, true)) {
+			return AsyncResult.ok(null);
+		}
+		try {
+			return this._sink.abort(reason);
+		} catch (Throwable ex) {
+			return AsyncResult.err(ex);
+		}
+	}
+
+	// endregion
 }
@@ -0,0 +1,66 @@
+package com.github.navnesen.streams.common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A pool of direct buffers of one size.
+ * <p>
+ * Direct buffers are expensive to allocate and are only freed by the
+ * garbage collector, so byte streams take their chunks from a pool and
+ * return them once they are read. The free buffers are kept in a
+ * {@link RingBuffer}, so acquiring and releasing never lock.
+ */
+public class ByteBufferPool {
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	public static final int DEFAULT_MAX_POOLED = 256;
+
+	private static final ByteBufferPool SHARED = new ByteBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED);
+
+	/**
+	 * The pool that byte streams use unless they are given one.
+	 */
+	public static ByteBufferPool shared() {
+		return SHARED;
+	}
+
+	protected final int bufferSize;
+	protected final RingBuffer<ByteBuffer> free;
+
+	/**
+	 * @param bufferSize the capacity of the buffers.
+	 * @param maxPooled  the maximum number of free buffers kept. Buffers
+	 *                   released beyond it are left to the garbage collector.
+	 */
+	public ByteBufferPool(int bufferSize, int maxPooled) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("buffer size must be positive");
+		}
+		this.bufferSize = bufferSize;
+		this.free = new RingBuffer<>(maxPooled);
+	}
+
+	public int bufferSize() {
+		return this.bufferSize;
+	}
+
+	/**
+	 * Take a cleared buffer from the pool, or allocate one if the pool is
+	 * empty.
+	 */
+	public ByteBuffer acquire() {
+		var buffer = this.free.poll();
+		return buffer != null ? buffer : ByteBuffer.allocateDirect(this.bufferSize);
+	}
+
+	/**
+	 * Return a buffer to the pool. Buffers that did not come from a pool of
+	 * this size are ignored. The buffer must not be used afterwards.
+	 */
+	public void release(ByteBuffer buffer) {
+		if (!buffer.isDirect() || buffer.isReadOnly() || buffer.capacity() != this.bufferSize) {
+			return;
+		}
+		buffer.clear();
+		this.free.offer(buffer);
+	}
+}
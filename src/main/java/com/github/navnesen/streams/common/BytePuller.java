@@ -0,0 +1,18 @@
+package com.github.navnesen.streams.common;
+
+import com.github.navnesen.async.AsyncResult;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Produces the bytes of a byte stream on demand, straight into a buffer
+ * supplied by the stream or by a reader.
+ */
+public interface BytePuller {
+	/**
+	 * Read bytes into the remaining space of {@code target}.
+	 *
+	 * @return the number of bytes read, or -1 when there are no more bytes.
+	 */
+	AsyncResult<Integer> pull(ByteBuffer target);
+}
@@ -1,7 +1,12 @@
 package com.github.navnesen.streams.common;
 
 import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.util.Option;
 
+/**
+ * Produces the chunks of a stream on demand. The pull completes with
+ * {@code Option.none()} when there are no more chunks.
+ */
 public interface DataPuller<T> {
-	AsyncResult<T> pull();
+	AsyncResult<Option<T>> pull();
 }
@@ -0,0 +1,41 @@
+package com.github.navnesen.streams.common;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.util.Option;
+
+import java.util.List;
+
+/**
+ * Consumes the chunks written to a stream. Writes and the final close are
+ * never run concurrently, an abort may arrive while a write is running.
+ */
+public interface DataSink<T> {
+	AsyncResult<Void> write(T chunk);
+
+	/**
+	 * Write several chunks at once. Sinks that can write a batch cheaper
+	 * than its chunks one by one should override this.
+	 */
+	default AsyncResult<Void> writev(List<T> chunks) {
+		AsyncResult<Void> result = AsyncResult.ok(null);
+		for (var chunk : chunks) {
+			result = result.andThen(ignored -> this.write(chunk));
+		}
+		return result;
+	}
+
+	/**
+	 * Called once all chunks are written and the stream is closed.
+	 */
+	default AsyncResult<Void> close() {
+		return AsyncResult.ok(null);
+	}
+
+	/**
+	 * Called when the stream is aborted. Chunks that were not yet written
+	 * are discarded.
+	 */
+	default AsyncResult<Void> abort(Option<String> reason) {
+		return AsyncResult.ok(null);
+	}
+}
@@ -0,0 +1,11 @@
+package com.github.navnesen.streams.common;
+
+/**
+ * Receives the chunks produced by a transform stage.
+ */
+public interface Emitter<T> {
+	/**
+	 * @return false if no more chunks are wanted.
+	 */
+	boolean emit(T chunk);
+}
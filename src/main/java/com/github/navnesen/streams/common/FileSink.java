@@ -0,0 +1,84 @@
+package com.github.navnesen.streams.common;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.Result;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * A sink that writes byte chunks to a file. A batch of chunks is written
+ * with one gathering write.
+ */
+public class FileSink implements DataSink<ByteBuffer> {
+
+	protected final FileChannel channel;
+
+	/**
+	 * Open {@code path} for writing, creating it or truncating it.
+	 */
+	public static Result<FileSink, IOException> open(Path path) {
+		try {
+			return Result.ok(new FileSink(FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)));
+		} catch (IOException ex) {
+			return Result.err(ex);
+		}
+	}
+
+	public FileSink(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	public FileChannel channel() {
+		return this.channel;
+	}
+
+	@Override
+	public AsyncResult<Void> write(ByteBuffer chunk) {
+		try {
+			while (chunk.hasRemaining()) {
+				this.channel.write(chunk);
+			}
+			return AsyncResult.ok(null);
+		} catch (IOException ex) {
+			return AsyncResult.err(ex);
+		}
+	}
+
+	@Override
+	public AsyncResult<Void> writev(List<ByteBuffer> chunks) {
+		var buffers = chunks.toArray(new ByteBuffer[0]);
+		try {
+			int first = 0;
+			while (first < buffers.length) {
+				this.channel.write(buffers, first, buffers.length - first);
+				while (first < buffers.length && !buffers[first].hasRemaining()) {
+					first++;
+				}
+			}
+			return AsyncResult.ok(null);
+		} catch (IOException ex) {
+			return AsyncResult.err(ex);
+		}
+	}
+
+	@Override
+	public AsyncResult<Void> close() {
+		try {
+			this.channel.close();
+			return AsyncResult.ok(null);
+		} catch (IOException ex) {
+			return AsyncResult.err(ex);
+		}
+	}
+
+	@Override
+	public AsyncResult<Void> abort(Option<String> reason) {
+		return this.close();
+	}
+}
@@ -0,0 +1,154 @@
+package com.github.navnesen.streams.common;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.Result;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file that is read sequentially through memory-mapped windows.
+ * <p>
+ * One window of the file is mapped at a time, and the next is mapped once
+ * the read position passes its end. Chunks are read-only slices of the
+ * window, so reading them costs neither a system call nor a copy.
+ * <p>
+ * Not thread-safe. A stream only reads it from one pull at a time.
+ */
+public class MappedFile implements AutoCloseable {
+	public static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+	protected final FileChannel channel;
+	protected final int chunkSize;
+	protected final long windowSize;
+	protected final long size;
+	protected long position = 0;
+	protected MappedByteBuffer window = null;
+	protected long windowStart = 0;
+
+	public static Result<MappedFile, IOException> open(Path path, int chunkSize) {
+		return open(path, chunkSize, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * @param chunkSize  the maximum size of the chunks read.
+	 * @param windowSize the maximum size of a mapped window.
+	 */
+	public static Result<MappedFile, IOException> open(Path path, int chunkSize, long windowSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunk size must be positive");
+		}
+		if (windowSize < chunkSize || windowSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("window size must be between the chunk size and 2^31 - 1");
+		}
+		try {
+			var channel = FileChannel.open(path, StandardOpenOption.READ);
+			return Result.ok(new MappedFile(channel, chunkSize, windowSize, channel.size()));
+		} catch (IOException ex) {
+			return Result.err(ex);
+		}
+	}
+
+	protected MappedFile(FileChannel channel, int chunkSize, long windowSize, long size) {
+		this.channel = channel;
+		this.chunkSize = chunkSize;
+		this.windowSize = windowSize;
+		this.size = size;
+	}
+
+	public long size() {
+		return this.size;
+	}
+
+	public long position() {
+		return this.position;
+	}
+
+	/**
+	 * The window that holds the read position, mapping the next one if the
+	 * current one is used up.
+	 */
+	protected MappedByteBuffer window() throws IOException {
+		if (this.window == null || this.position >= this.windowStart + this.window.capacity()) {
+			this.windowStart = this.position;
+			this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, Math.min(this.windowSize, this.size - this.position));
+		}
+		return this.window;
+	}
+
+	/**
+	 * Read the next chunk, as a read-only slice of the mapped file. The
+	 * file is closed once the last chunk is read.
+	 */
+	public AsyncResult<Option<ByteBuffer>> nextChunk() {
+		if (this.position >= this.size) {
+			this.close();
+			return AsyncResult.ok(Option.none());
+		}
+		try {
+			var window = this.window();
+			int offset = (int) (this.position - this.windowStart);
+			int length = Math.min(this.chunkSize, window.capacity() - offset);
+			this.position += length;
+			return AsyncResult.ok(Option.some(window.slice(offset, length).asReadOnlyBuffer()));
+		} catch (IOException ex) {
+			this.close();
+			return AsyncResult.err(ex);
+		}
+	}
+
+	/**
+	 * Copy bytes from the mapped file into {@code target}.
+	 *
+	 * @return the number of bytes copied, or -1 at the end of the file.
+	 */
+	public AsyncResult<Integer> readInto(ByteBuffer target) {
+		if (this.position >= this.size) {
+			this.close();
+			return AsyncResult.ok(-1);
+		}
+		try {
+			var window = this.window();
+			int offset = (int) (this.position - this.windowStart);
+			int length = Math.min(target.remaining(), window.capacity() - offset);
+			target.put(window.slice(offset, length));
+			this.position += length;
+			return AsyncResult.ok(length);
+		} catch (IOException ex) {
+			this.close();
+			return AsyncResult.err(ex);
+		}
+	}
+
+	/**
+	 * Move the rest of the file to {@code target} with
+	 * {@link FileChannel#transferTo}, which lets the kernel copy the bytes
+	 * without passing them through user space.
+	 *
+	 * @return the number of bytes moved.
+	 */
+	public long transferTo(WritableByteChannel target) throws IOException {
+		long start = this.position;
+		while (this.position < this.size) {
+			this.position += this.channel.transferTo(this.position, this.size - this.position, target);
+		}
+		this.close();
+		return this.position - start;
+	}
+
+	@Override
+	public void close() {
+		this.window = null;
+		try {
+			this.channel.close();
+		} catch (IOException ignored) {
+			// nothing left to read from it
+		}
+	}
+}
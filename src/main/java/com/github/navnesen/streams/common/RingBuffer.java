@@ -0,0 +1,144 @@
+package com.github.navnesen.streams.common;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free multi-producer multi-consumer queue.
+ * <p>
+ * Every slot carries a sequence number that tells producers and consumers
+ * whose turn it is to use the slot, so each offer and poll costs a single
+ * compare-and-set on the tail or head position. Null values are not
+ * supported, since null is what {@link RingBuffer#poll()} returns when the
+ * queue is empty.
+ *
+ * @param <T>
+ */
+public class RingBuffer<T> {
+
+	protected final Object[] buffer;
+	protected final AtomicLongArray sequences;
+	protected final int mask;
+	protected final AtomicLong head = new AtomicLong();
+	protected final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * @param capacity the maximum number of values, rounded up to a power of
+	 *                 two.
+	 */
+	public RingBuffer(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.buffer = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+		this.mask = size - 1;
+	}
+
+	public int capacity() {
+		return this.buffer.length;
+	}
+
+	/**
+	 * The number of values in the queue. Only a snapshot while other threads
+	 * offer or poll.
+	 */
+	public int size() {
+		while (true) {
+			long head = this.head.get();
+			long tail = this.tail.get();
+			if (this.head.get() == head) {
+				return (int) Math.max(0, Math.min(tail - head, this.buffer.length));
+			}
+		}
+	}
+
+	public boolean isEmpty() {
+		return this.size() == 0;
+	}
+
+	/**
+	 * Add a value to the tail of the queue.
+	 *
+	 * @return false if the queue is full.
+	 */
+	public boolean offer(T value) {
+		if (value == null) {
+			throw new NullPointerException("value");
+		}
+		long position = this.tail.get();
+		int index;
+		while (true) {
+			index = (int) position & this.mask;
+			long difference = this.sequences.get(index) - position;
+			if (difference == 0) {
+				if (this.tail.compareAndSet(position, position + 1)) {
+					break;
+				}
+				position = this.tail.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = this.tail.get();
+			}
+		}
+		this.buffer[index] = value;
+		this.sequences.set(index, position + 1);
+		return true;
+	}
+
+	/**
+	 * Remove the value at the head of the queue.
+	 *
+	 * @return the value, or null if the queue is empty.
+	 */
+	public T poll() {
+		long position = this.head.get();
+		int index;
+		while (true) {
+			index = (int) position & this.mask;
+			long difference = this.sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (this.head.compareAndSet(position, position + 1)) {
+					break;
+				}
+				position = this.head.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = this.head.get();
+			}
+		}
+		@SuppressWarnings("unchecked") final T value = (T) this.buffer[index];
+		this.buffer[index] = null;
+		this.sequences.set(index, position + this.mask + 1);
+		return value;
+	}
+
+	/**
+	 * Move up to {@code max} values from the head of the queue into
+	 * {@code target}.
+	 *
+	 * @return the number of values moved.
+	 */
+	public int drainTo(Collection<? super T> target, int max) {
+		int count = 0;
+		while (count < max) {
+			T value = this.poll();
+			if (value == null) {
+				break;
+			}
+			target.add(value);
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,250 @@
+package com.github.navnesen.streams.common;
+
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.async.DeferredAsyncResult;
+import com.github.navnesen.util.Result;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread that waits for many non-blocking channels at once.
+ * <p>
+ * Channel operations are tried on the calling thread first, and only when
+ * one would block does the caller ask the loop, with
+ * {@link SelectorLoop#whenReady}, to be told once the channel is ready.
+ * The continuation of that result runs on the loop thread, so it must not
+ * block.
+ */
+public class SelectorLoop implements AutoCloseable {
+	private static final AtomicInteger counter = new AtomicInteger();
+	private static volatile SelectorLoop shared;
+
+	/**
+	 * The loop that channel streams use unless they are given one. It is
+	 * started on first use, and runs on a daemon thread.
+	 */
+	public static SelectorLoop shared() {
+		var loop = shared;
+		if (loop == null) {
+			synchronized (SelectorLoop.class) {
+				loop = shared;
+				if (loop == null) {
+					loop = open().unwrap();
+					shared = loop;
+				}
+			}
+		}
+		return loop;
+	}
+
+	/**
+	 * Start a new loop on its own daemon thread.
+	 */
+	public static Result<SelectorLoop, IOException> open() {
+		try {
+			return Result.ok(new SelectorLoop(Selector.open()));
+		} catch (IOException ex) {
+			return Result.err(ex);
+		}
+	}
+
+	/**
+	 * The waiters of one channel, indexed by the bit number of the
+	 * operation. Only touched on the loop thread.
+	 */
+	protected static class Waiters {
+		@SuppressWarnings("unchecked")
+		final DeferredAsyncResult<Void>[] byOperation = (DeferredAsyncResult<Void>[]) new DeferredAsyncResult<?>[5];
+	}
+
+	protected final Selector selector;
+	protected final Thread thread;
+	protected final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	protected volatile boolean isOpen = true;
+
+	protected SelectorLoop(Selector selector) {
+		this.selector = selector;
+		this.thread = new Thread(this::run, "selector-" + counter.incrementAndGet());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	protected void run() {
+		try {
+			while (this.isOpen) {
+				this.selector.select();
+				this.runTasks();
+				for (var key : this.selector.selectedKeys()) {
+					this.handleReady(key);
+				}
+				this.selector.selectedKeys().clear();
+			}
+		} catch (IOException | ClosedSelectorException ex) {
+			// the loop is closed
+		} finally {
+			this.isOpen = false;
+			this.failAll();
+		}
+	}
+
+	protected void handleReady(SelectionKey key) {
+		var waiters = (Waiters) key.attachment();
+		if (!key.isValid()) {
+			this.fail(waiters, new ClosedChannelException());
+			return;
+		}
+		int ready;
+		try {
+			ready = key.readyOps() & key.interestOps();
+			key.interestOps(key.interestOps() & ~ready);
+		} catch (CancelledKeyException ex) {
+			// the channel was closed by another thread after the check above
+			this.fail(waiters, new ClosedChannelException());
+			return;
+		}
+		for (int bit = 0; bit < waiters.byOperation.length; bit++) {
+			var waiter = waiters.byOperation[bit];
+			if (waiter != null && (ready & 1 << bit) != 0) {
+				waiters.byOperation[bit] = null;
+				waiter.tryOkay(null);
+			}
+		}
+	}
+
+	protected void fail(Waiters waiters, Throwable exception) {
+		for (int bit = 0; bit < waiters.byOperation.length; bit++) {
+			var waiter = waiters.byOperation[bit];
+			if (waiter != null) {
+				waiters.byOperation[bit] = null;
+				waiter.tryError(exception);
+			}
+		}
+	}
+
+	/**
+	 * Run the queued tasks. A task that throws is reported to the handler
+	 * of the loop thread, and does not stop the loop.
+	 */
+	protected void runTasks() {
+		Runnable task;
+		while ((task = this.tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (RuntimeException ex) {
+				this.thread.getUncaughtExceptionHandler().uncaughtException(this.thread, ex);
+			}
+		}
+	}
+
+	protected void failAll() {
+		this.runTasks();
+		try {
+			for (var key : this.selector.keys()) {
+				this.fail((Waiters) key.attachment(), new ClosedSelectorException());
+			}
+			this.selector.close();
+		} catch (IOException | ClosedSelectorException ignored) {
+			// already closed
+		}
+	}
+
+	/**
+	 * Run {@code task} on the loop thread.
+	 */
+	public void execute(Runnable task) {
+		if (Thread.currentThread() == this.thread) {
+			task.run();
+			return;
+		}
+		this.tasks.add(task);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * Complete once {@code channel} is ready for {@code operation}, one of
+	 * the {@link SelectionKey} operation bits. Only one caller may wait for
+	 * each operation of a channel at a time.
+	 */
+	public AsyncResult<Void> whenReady(SelectableChannel channel, int operation) {
+		if (Integer.bitCount(operation) != 1 || (channel.validOps() & operation) == 0) {
+			throw new IllegalArgumentException("not a single valid operation of the channel");
+		}
+		var ready = new DeferredAsyncResult<Void>();
+		this.execute(() -> {
+			if (!this.isOpen) {
+				ready.tryError(new ClosedSelectorException());
+				return;
+			}
+			try {
+				var key = channel.keyFor(this.selector);
+				if (key == null) {
+					key = channel.register(this.selector, 0, new Waiters());
+				}
+				var waiters = (Waiters) key.attachment();
+				int bit = Integer.numberOfTrailingZeros(operation);
+				if (waiters.byOperation[bit] != null) {
+					ready.tryError(new IllegalStateException("already waiting for this operation"));
+					return;
+				}
+				waiters.byOperation[bit] = ready;
+				key.interestOps(key.interestOps() | operation);
+			} catch (IOException | CancelledKeyException ex) {
+				ready.tryError(ex instanceof CancelledKeyException ? new ClosedChannelException() : ex);
+			} catch (RuntimeException ex) {
+				ready.tryError(ex);
+			}
+		});
+		return ready;
+	}
+
+	/**
+	 * Close {@code channel} on the loop thread, and fail its pending waits
+	 * with a {@link ClosedChannelException}.
+	 */
+	public void close(SelectableChannel channel) {
+		this.execute(() -> {
+			var key = channel.keyFor(this.selector);
+			if (key != null) {
+				key.cancel();
+				this.fail((Waiters) key.attachment(), new ClosedChannelException());
+			}
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+				// closed anyway
+			}
+		});
+		if (!this.isOpen) {
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+				// closed anyway
+			}
+		}
+	}
+
+	/**
+	 * Stop the loop. Pending waits fail with a
+	 * {@link ClosedSelectorException}.
+	 */
+	@Override
+	public void close() {
+		this.isOpen = false;
+		this.selector.wakeup();
+		if (Thread.currentThread() != this.thread) {
+			try {
+				this.thread.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.github.navnesen.streams.common;
+
+import com.github.navnesen.util.common.TypeActionMap;
+
+/**
+ * A transform stage that turns chunks of type {@code I} into zero or more
+ * chunks of type {@code O}.
+ * <p>
+ * A stage wraps the emitter of the stage after it. Adjacent stages are
+ * fused with {@link Stage#then}, which wraps the emitters once, so a chunk
+ * passes through a whole pipeline of stages as plain method calls.
+ */
+public interface Stage<I, O> {
+	Emitter<I> wrap(Emitter<O> downstream);
+
+	/**
+	 * Fuse this stage with the stage after it.
+	 */
+	default <U> Stage<I, U> then(Stage<O, U> next) {
+		return downstream -> this.wrap(next.wrap(downstream));
+	}
+
+	static <T> Stage<T, T> identity() {
+		return downstream -> downstream;
+	}
+
+	static <T, U> Stage<T, U> map(TypeActionMap<T, U> action) {
+		return downstream -> chunk -> downstream.emit(action.run(chunk));
+	}
+
+	static <T> Stage<T, T> filter(TypeActionMap<T, Boolean> predicate) {
+		return downstream -> chunk -> !predicate.run(chunk) || downstream.emit(chunk);
+	}
+
+	static <T, U> Stage<T, U> flatMap(TypeActionMap<T, Iterable<U>> action) {
+		return downstream -> chunk -> {
+			for (var value : action.run(chunk)) {
+				if (!downstream.emit(value)) {
+					return false;
+				}
+			}
+			return true;
+		};
+	}
+
+	/**
+	 * Pass chunks on until the first one that does not match, and end the
+	 * stream there.
+	 */
+	static <T> Stage<T, T> takeWhile(TypeActionMap<T, Boolean> predicate) {
+		return downstream -> chunk -> predicate.run(chunk) && downstream.emit(chunk);
+	}
+}
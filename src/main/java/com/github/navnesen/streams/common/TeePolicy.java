@@ -0,0 +1,15 @@
+package com.github.navnesen.streams.common;
+
+/**
+ * What a tee does when one branch falls too far behind the other.
+ */
+public enum TeePolicy {
+	/**
+	 * Stop reading from the source until the slow branch catches up.
+	 */
+	BACKPRESSURE,
+	/**
+	 * Keep reading, and drop the oldest chunks the slow branch has not read.
+	 */
+	DROP,
+}
@@ -1,7 +1,5 @@
 package com.github.navnesen.sync;
 
-import java.util.concurrent.atomic.AtomicReference;
-
 /**
  * A container for the value protected by a mutex.
  *
@@ -10,17 +8,8 @@ import java.util.concurrent.atomic.AtomicReference;
 public class Locked<T> implements AutoCloseable {
 	protected Mutex<T> mutex;
 
-	protected Locked<T> waitForLock() {
-		synchronized (this) {
-			while (this.mutex == null) {
-				try {
-					this.wait();
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-				}
-			}
-		}
-		return this;
+	protected Locked(Mutex<T> mutex) {
+		this.mutex = mutex;
 	}
 
 	/**
@@ -57,25 +46,7 @@ public class Locked<T> implements AutoCloseable {
 		}
 		Mutex<T> mutex = this.mutex;
 		this.mutex = null;
-		synchronized (mutex.waiters) {
-			final AtomicReference<Locked<T>> nextLockRef = new AtomicReference<>(null);
-			mutex.waiters.updateAndGet(waiters -> {
-				if (waiters.size() > 0) {
-					nextLockRef.set(waiters.remove(0));
-				} else {
-					mutex.locked.set(false);
-				}
-				return waiters;
-			});
-			final Locked<T> nextLock = nextLockRef.get();
-			if (nextLock != null) {
-				// noinspection SynchronizationOnLocalVariableOrMethodParameter
-				synchronized (nextLock) {
-					nextLock.mutex = mutex;
-					nextLock.notifyAll();
-				}
-			}
-		}
+		mutex.unlock();
 	}
 
 	/**
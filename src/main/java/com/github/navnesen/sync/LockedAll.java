@@ -0,0 +1,71 @@
+package com.github.navnesen.sync;
+
+import java.util.List;
+
+/**
+ * A container for the values of every shard of a {@link StripedMutex}.
+ *
+ * @param <T>
+ */
+public class LockedAll<T> implements AutoCloseable {
+	protected List<Locked<T>> locks;
+
+	protected LockedAll(List<Locked<T>> locks) {
+		this.locks = locks;
+	}
+
+	/**
+	 * Verify that read/write operations on the locks is still possible.
+	 */
+	protected void assertNotReleased() {
+		if (this.locks == null) {
+			throw new RuntimeException("Mutex lock is released!");
+		}
+	}
+
+	/**
+	 * The number of shards.
+	 */
+	public int size() {
+		this.assertNotReleased();
+		return this.locks.size();
+	}
+
+	/**
+	 * Get the current value of a shard.
+	 */
+	public T get(int stripe) {
+		this.assertNotReleased();
+		return this.locks.get(stripe).get();
+	}
+
+	/**
+	 * Put a new value into a shard.
+	 */
+	public void set(int stripe, T value) {
+		this.assertNotReleased();
+		this.locks.get(stripe).set(value);
+	}
+
+	/**
+	 * Releases every shard, in the reverse order of locking.
+	 */
+	public void release() {
+		if (this.locks == null) {
+			return;
+		}
+		List<Locked<T>> locks = this.locks;
+		this.locks = null;
+		for (int i = locks.size() - 1; i >= 0; i--) {
+			locks.get(i).release();
+		}
+	}
+
+	/**
+	 * Alias to {@link LockedAll#release()}.
+	 */
+	@Override
+	public void close() {
+		this.release();
+	}
+}
@@ -1,47 +1,149 @@
 package com.github.navnesen.sync;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.Result;
+
+import java.time.Duration;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
 
 /**
  * A mutual exclusion primitive useful for protecting shared data.
+ * <p>
+ * An uncontended lock is taken with a single compare-and-set. A contended
+ * lock spins briefly, then parks in a FIFO queue of waiters, which are
+ * woken one at a time as the lock is released. Waiters that time out or
+ * are interrupted are removed from the queue.
  *
  * @param <T>
  */
 public class Mutex<T> {
+	// At least one spin, or a lock that once stopped spinning could never
+	// find out that spinning pays off again.
+	private static final int MIN_SPINS = 1;
+	private static final int MAX_SPINS = 1 << 10;
+	private static final boolean SPIN_ENABLED = Runtime.getRuntime().availableProcessors() > 1;
+
 	public static <T> Mutex<T> of(T value) {
 		return new Mutex<>(value);
 	}
 
 	protected T value;
-	protected final AtomicReference<List<Locked<T>>> waiters = new AtomicReference<>(new ArrayList<>());
-	protected final AtomicReference<Boolean> locked = new AtomicReference<>(false);
+	protected final Sync sync = new Sync();
+
+	/**
+	 * How long to spin before parking. Grows when spinning acquires the lock
+	 * and shrinks when it does not, so that locks that are held for long
+	 * stop burning CPU on spinning. Races on this field are harmless.
+	 */
+	private int spins = 1 << 6;
 
 	public Mutex(T value) {
 		this.value = value;
 	}
 
 	public Locked<T> lock() {
-		@SuppressWarnings("resource") final Locked<T> lock = new Locked<>();
-
-		synchronized (this) {
-			this.locked.updateAndGet(locked -> {
-				final AtomicBoolean newLockState = new AtomicBoolean(locked);
-				this.waiters.updateAndGet(waiters -> {
-					if (!locked) {
-						newLockState.set(true);
-						lock.mutex = this;
-					} else {
-						waiters.add(lock);
-					}
-					return waiters;
-				});
-				return newLockState.get();
-			});
-
-		}
-		return lock.waitForLock();
+		if (!this.sync.tryAcquire(1) && !this.spinForLock()) {
+			this.sync.acquire(1);
+		}
+		return new Locked<>(this);
+	}
+
+	/**
+	 * Lock the mutex only if it is not locked at the time of the call.
+	 */
+	public Option<Locked<T>> tryLock() {
+		if (!this.sync.tryAcquire(1)) {
+			return Option.none();
+		}
+		return Option.some(new Locked<>(this));
+	}
+
+	/**
+	 * Lock the mutex, waiting at most {@code timeout} for it to be released.
+	 * <p>
+	 * Gives up early if the thread is interrupted while waiting, in which
+	 * case the interrupt status of the thread is kept.
+	 */
+	public Option<Locked<T>> tryLock(Duration timeout) {
+		try {
+			if (this.sync.tryAcquire(1) || this.sync.tryAcquireNanos(1, timeout.toNanos())) {
+				return Option.some(new Locked<>(this));
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		return Option.none();
+	}
+
+	/**
+	 * Lock the mutex, unless the thread is interrupted while waiting.
+	 */
+	public Result<Locked<T>, InterruptedException> lockInterruptibly() {
+		try {
+			this.sync.acquireInterruptibly(1);
+		} catch (InterruptedException ex) {
+			return Result.err(ex);
+		}
+		return Result.ok(new Locked<>(this));
+	}
+
+	/**
+	 * Spin while the lock is held, in the hope that it is released soon.
+	 *
+	 * @return whether the lock was acquired.
+	 */
+	private boolean spinForLock() {
+		if (!SPIN_ENABLED || this.sync.hasQueuedThreads()) {
+			return false;
+		}
+		final int limit = this.spins;
+		for (int i = 0; i < limit; i++) {
+			Thread.onSpinWait();
+			if (!this.sync.isLocked() && this.sync.tryAcquire(1)) {
+				this.spins = nextSpins(limit, true);
+				return true;
+			}
+		}
+		this.spins = nextSpins(limit, false);
+		return false;
+	}
+
+	/**
+	 * The spin limit after spinning up to {@code limit} times did or did not
+	 * acquire the lock.
+	 */
+	protected static int nextSpins(int limit, boolean acquired) {
+		if (acquired) {
+			return Math.min(MAX_SPINS, limit * 2 + 1);
+		}
+		return Math.max(MIN_SPINS, limit / 2);
+	}
+
+	protected void unlock() {
+		this.sync.release(1);
+	}
+
+	/**
+	 * Lock state and wait queue of a mutex. The state is 1 while locked and 0
+	 * otherwise. The lock is not owned by a thread, a {@link Locked} may be
+	 * released from any thread.
+	 */
+	protected static final class Sync extends AbstractQueuedSynchronizer {
+		private static final long serialVersionUID = 1L;
+
+		boolean isLocked() {
+			return this.getState() != 0;
+		}
+
+		@Override
+		protected boolean tryAcquire(int arg) {
+			return this.compareAndSetState(0, 1);
+		}
+
+		@Override
+		protected boolean tryRelease(int arg) {
+			this.setState(0);
+			return true;
+		}
 	}
 }
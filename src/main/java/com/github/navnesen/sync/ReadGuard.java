@@ -0,0 +1,51 @@
+package com.github.navnesen.sync;
+
+/**
+ * Shared read access to the value protected by a reader-writer lock.
+ *
+ * @param <T>
+ */
+public class ReadGuard<T> implements AutoCloseable {
+	protected RwLock<T> lock;
+
+	protected ReadGuard(RwLock<T> lock) {
+		this.lock = lock;
+	}
+
+	/**
+	 * Verify that read operations on the lock is still possible.
+	 */
+	protected void assertNotReleased() {
+		if (this.lock == null) {
+			throw new RuntimeException("Read lock is released!");
+		}
+	}
+
+	/**
+	 * Get the current value in the lock.
+	 */
+	public T get() {
+		this.assertNotReleased();
+		return this.lock.value;
+	}
+
+	/**
+	 * Releases the read access.
+	 */
+	public void release() {
+		if (this.lock == null) {
+			return;
+		}
+		RwLock<T> lock = this.lock;
+		this.lock = null;
+		lock.readUnlock();
+	}
+
+	/**
+	 * Alias to {@link ReadGuard#release()}.
+	 */
+	@Override
+	public void close() {
+		this.release();
+	}
+}
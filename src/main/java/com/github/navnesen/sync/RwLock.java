@@ -0,0 +1,144 @@
+package com.github.navnesen.sync;
+
+import com.github.navnesen.util.common.TypeActionMap;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
+/**
+ * A reader-writer lock useful for protecting shared data that is read much
+ * more often than it is written.
+ * <p>
+ * Any number of readers can hold the lock at the same time, while a writer
+ * holds it alone. Readers never overtake queued threads, so a waiting writer
+ * is not starved by a steady stream of new readers.
+ * <p>
+ * Short reads can use {@link RwLock#optimisticRead}, which takes no lock at
+ * all while no writer is active.
+ *
+ * @param <T>
+ */
+public class RwLock<T> {
+	public static <T> RwLock<T> of(T value) {
+		return new RwLock<>(value);
+	}
+
+	protected T value;
+	protected final Sync sync = new Sync();
+
+	/**
+	 * Incremented when a writer acquires and when it releases the lock, so
+	 * the version is odd exactly while a writer is active.
+	 */
+	protected final AtomicLong version = new AtomicLong();
+
+	public RwLock(T value) {
+		this.value = value;
+	}
+
+	/**
+	 * Acquire shared read access, waiting while a writer holds or waits for
+	 * the lock.
+	 */
+	public ReadGuard<T> read() {
+		this.sync.acquireShared(1);
+		return new ReadGuard<>(this);
+	}
+
+	/**
+	 * Acquire exclusive write access, waiting until no one else holds the
+	 * lock.
+	 */
+	public WriteGuard<T> write() {
+		this.sync.acquire(1);
+		this.version.incrementAndGet();
+		return new WriteGuard<>(this);
+	}
+
+	/**
+	 * Run {@code action} on the value without taking the lock. If a writer
+	 * was active before or during the action, its outcome is discarded and
+	 * the action is run again under the read lock.
+	 * <p>
+	 * The action may observe the value while a writer modifies it, so it
+	 * should only read, and must tolerate inconsistent state. Exceptions
+	 * thrown during a discarded attempt are ignored.
+	 */
+	public <U> U optimisticRead(TypeActionMap<T, U> action) {
+		final long stamp = this.version.get();
+		if ((stamp & 1) == 0) {
+			U result = null;
+			RuntimeException exception = null;
+			try {
+				result = action.run(this.value);
+			} catch (RuntimeException ex) {
+				exception = ex;
+			}
+			VarHandle.acquireFence();
+			if (this.version.get() == stamp) {
+				if (exception != null) {
+					throw exception;
+				}
+				return result;
+			}
+		}
+		try (var guard = this.read()) {
+			return action.run(guard.get());
+		}
+	}
+
+	protected void readUnlock() {
+		this.sync.releaseShared(1);
+	}
+
+	protected void writeUnlock() {
+		this.version.incrementAndGet();
+		this.sync.release(1);
+	}
+
+	/**
+	 * Lock state and wait queue of a reader-writer lock. The state is -1
+	 * while a writer holds the lock, and the number of readers otherwise.
+	 */
+	protected static final class Sync extends AbstractQueuedSynchronizer {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean tryAcquire(int arg) {
+			return this.compareAndSetState(0, -1);
+		}
+
+		@Override
+		protected boolean tryRelease(int arg) {
+			this.setState(0);
+			return true;
+		}
+
+		@Override
+		protected int tryAcquireShared(int arg) {
+			while (true) {
+				if (this.hasQueuedPredecessors()) {
+					return -1;
+				}
+				int state = this.getState();
+				if (state < 0) {
+					return -1;
+				}
+				if (this.compareAndSetState(state, state + 1)) {
+					return 1;
+				}
+			}
+		}
+
+		@Override
+		protected boolean tryReleaseShared(int arg) {
+			while (true) {
+				int state = this.getState();
+				if (this.compareAndSetState(state, state - 1)) {
+					return state == 1;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.github.navnesen.sync;
+
+import com.github.navnesen.util.common.TypeAction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of independently locked mutexes, each protecting one shard of some
+ * shared data. Keys are hashed onto the shards, so threads working on
+ * different keys rarely contend for the same lock.
+ *
+ * @param <K> the type of the keys used to select a shard.
+ * @param <T> the type of the value in each shard.
+ */
+public class StripedMutex<K, T> {
+
+	/**
+	 * Create a striped mutex with a stripe per available processor, rounded
+	 * up to a power of two.
+	 */
+	public static <K, T> StripedMutex<K, T> of(TypeAction<T> initialValue) {
+		return new StripedMutex<>(Runtime.getRuntime().availableProcessors(), initialValue);
+	}
+
+	protected final Mutex<T>[] stripes;
+	protected final int mask;
+
+	/**
+	 * @param stripes      the number of shards, rounded up to a power of two.
+	 * @param initialValue creates the initial value of each shard.
+	 */
+	public StripedMutex(int stripes, TypeAction<T> initialValue) {
+		if (stripes < 1 || stripes > 1 << 30) {
+			throw new IllegalArgumentException("stripe count must be between 1 and 2^30");
+		}
+		int size = Integer.highestOneBit(stripes);
+		if (size < stripes) {
+			size <<= 1;
+		}
+		@SuppressWarnings("unchecked") final Mutex<T>[] array = (Mutex<T>[]) new Mutex<?>[size];
+		for (int i = 0; i < size; i++) {
+			array[i] = new Mutex<>(initialValue.run());
+		}
+		this.stripes = array;
+		this.mask = size - 1;
+	}
+
+	/**
+	 * The number of shards.
+	 */
+	public int stripes() {
+		return this.stripes.length;
+	}
+
+	/**
+	 * The index of the shard that {@code key} belongs to.
+	 */
+	public int stripeOf(K key) {
+		int hash = key == null ? 0 : key.hashCode();
+		return (hash ^ (hash >>> 16)) & this.mask;
+	}
+
+	/**
+	 * Get the mutex of the shard that {@code key} belongs to.
+	 */
+	public Mutex<T> stripe(K key) {
+		return this.stripes[this.stripeOf(key)];
+	}
+
+	/**
+	 * Lock the shard that {@code key} belongs to.
+	 */
+	public Locked<T> lock(K key) {
+		return this.stripe(key).lock();
+	}
+
+	/**
+	 * Lock every shard, for a consistent view of all of them. Shards are
+	 * locked in index order, so this does not deadlock with other threads
+	 * that hold at most one shard. Do not call it while holding a shard.
+	 */
+	public LockedAll<T> lockAll() {
+		final List<Locked<T>> locks = new ArrayList<>(this.stripes.length);
+		for (var stripe : this.stripes) {
+			locks.add(stripe.lock());
+		}
+		return new LockedAll<>(locks);
+	}
+}
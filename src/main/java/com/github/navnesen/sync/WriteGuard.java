@@ -0,0 +1,59 @@
+package com.github.navnesen.sync;
+
+/**
+ * Exclusive write access to the value protected by a reader-writer lock.
+ *
+ * @param <T>
+ */
+public class WriteGuard<T> implements AutoCloseable {
+	protected RwLock<T> lock;
+
+	protected WriteGuard(RwLock<T> lock) {
+		this.lock = lock;
+	}
+
+	/**
+	 * Verify that read/write operations on the lock is still possible.
+	 */
+	protected void assertNotReleased() {
+		if (this.lock == null) {
+			throw new RuntimeException("Write lock is released!");
+		}
+	}
+
+	/**
+	 * Get the current value in the lock.
+	 */
+	public T get() {
+		this.assertNotReleased();
+		return this.lock.value;
+	}
+
+	/**
+	 * Put a new value into the lock.
+	 */
+	public void set(T value) {
+		this.assertNotReleased();
+		this.lock.value = value;
+	}
+
+	/**
+	 * Releases the write access to the next waiter.
+	 */
+	public void release() {
+		if (this.lock == null) {
+			return;
+		}
+		RwLock<T> lock = this.lock;
+		this.lock = null;
+		lock.writeUnlock();
+	}
+
+	/**
+	 * Alias to {@link WriteGuard#release()}.
+	 */
+	@Override
+	public void close() {
+		this.release();
+	}
+}
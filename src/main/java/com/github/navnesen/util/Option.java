@@ -4,19 +4,29 @@ import com.github.navnesen.util.common.InspectAction;
 import com.github.navnesen.util.common.TypeAction;
 import com.github.navnesen.util.common.TypeActionMap;
 
-public class Option<T> {
+/**
+ * An optional value. Options are immutable, combinators that leave the
+ * value as it is return the same instance, and every empty option is the
+ * same shared instance. Use {@link OptionCell} for a mutable slot.
+ *
+ * @param <T>
+ */
+public final class Option<T> {
+	private static final Option<?> NONE = new Option<>(false, null);
+
 	public static <T> Option<T> some(T value) {
 		return new Option<>(true, value);
 	}
 
+	@SuppressWarnings("unchecked")
 	public static <T> Option<T> none() {
-		return new Option<>(false, null);
+		return (Option<T>) NONE;
 	}
 
-	protected boolean hasValue;
-	protected T value;
+	private final boolean hasValue;
+	private final T value;
 
-	protected Option(boolean hasValue, T value) {
+	private Option(boolean hasValue, T value) {
 		this.hasValue = hasValue;
 		this.value = value;
 	}
@@ -98,53 +108,28 @@ public class Option<T> {
 	}
 
 	public Option<T> filter(TypeActionMap<T, Boolean> predicate) {
-		if (this.isSome() && predicate.run(this.value)) {
-			return Option.some(this.value);
+		if (this.hasValue && predicate.run(this.value)) {
+			return this;
 		}
 		return Option.none();
 	}
 
 	public Option<T> or(Option<T> opt) {
-		if (this.hasValue) return Option.some(this.value);
+		if (this.hasValue) return this;
 		return opt;
 	}
 
 	public Option<T> orElse(TypeAction<Option<T>> action) {
-		if (this.hasValue) return Option.some(this.value);
+		if (this.hasValue) return this;
 		return action.run();
 	}
 
 	public Option<T> xor(Option<T> opt) {
-		if (this.isSome() && opt.isNone()) return Option.some(this.value);
-		if (this.isNone() && opt.isSome()) return Option.some(opt.value);
+		if (this.hasValue && !opt.hasValue) return this;
+		if (!this.hasValue && opt.hasValue) return opt;
 		return Option.none();
 	}
 
-	public Option<T> insert(T value) {
-		this.hasValue = true;
-		this.value = value;
-		return this;
-	}
-
-	public T getOrInsert(T value) {
-		if (this.hasValue) return this.value;
-		this.insert(value);
-		return this.value;
-	}
-
-	public T getOrInsertWith(TypeAction<T> action) {
-		if (this.hasValue) return this.value;
-		this.insert(action.run());
-		return this.value;
-	}
-
-	public Option<T> take() {
-		var newOption = new Option<>(this.hasValue, this.value);
-		this.hasValue = false;
-		this.value = null;
-		return newOption;
-	}
-
 	public <U> boolean contains(U value) {
 		return this.hasValue && this.value == value;
 	}
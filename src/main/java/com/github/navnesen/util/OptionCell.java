@@ -0,0 +1,87 @@
+package com.github.navnesen.util;
+
+import com.github.navnesen.util.common.TypeAction;
+
+/**
+ * A mutable slot that may hold a value. This holds the mutating operations
+ * that {@link Option} itself does not support.
+ * <p>
+ * A cell is not thread-safe, guard it with a mutex when it is shared.
+ *
+ * @param <T>
+ */
+public class OptionCell<T> {
+	public static <T> OptionCell<T> of(Option<T> option) {
+		return new OptionCell<>(option);
+	}
+
+	public static <T> OptionCell<T> empty() {
+		return new OptionCell<>(Option.none());
+	}
+
+	protected boolean hasValue;
+	protected T value;
+
+	public OptionCell(Option<T> option) {
+		this.hasValue = option.isSome();
+		this.value = option.unwrapUnchecked();
+	}
+
+	public boolean isSome() {
+		return this.hasValue;
+	}
+
+	public boolean isNone() {
+		return !this.hasValue;
+	}
+
+	/**
+	 * Get the current content of the cell.
+	 */
+	public Option<T> get() {
+		if (!this.hasValue) return Option.none();
+		return Option.some(this.value);
+	}
+
+	/**
+	 * Put a value into the cell, replacing any previous value.
+	 *
+	 * @return the inserted value.
+	 */
+	public T insert(T value) {
+		this.hasValue = true;
+		this.value = value;
+		return value;
+	}
+
+	public T getOrInsert(T value) {
+		if (this.hasValue) return this.value;
+		return this.insert(value);
+	}
+
+	public T getOrInsertWith(TypeAction<T> action) {
+		if (this.hasValue) return this.value;
+		return this.insert(action.run());
+	}
+
+	/**
+	 * Take the value out of the cell, leaving it empty.
+	 */
+	public Option<T> take() {
+		var option = this.get();
+		this.hasValue = false;
+		this.value = null;
+		return option;
+	}
+
+	/**
+	 * Put a value into the cell.
+	 *
+	 * @return the previous content of the cell.
+	 */
+	public Option<T> replace(T value) {
+		var option = this.get();
+		this.insert(value);
+		return option;
+	}
+}
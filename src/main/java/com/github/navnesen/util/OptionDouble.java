@@ -0,0 +1,145 @@
+package com.github.navnesen.util;
+
+import com.github.navnesen.util.common.DoubleAction;
+import com.github.navnesen.util.common.DoubleActionMap;
+import com.github.navnesen.util.common.DoubleFilterAction;
+import com.github.navnesen.util.common.DoubleInspectAction;
+import com.github.navnesen.util.common.DoubleTypeActionMap;
+import com.github.navnesen.util.common.TypeAction;
+
+/**
+ * An optional {@code double}, the unboxed counterpart of {@code Option<Double>}.
+ */
+public final class OptionDouble {
+	private static final OptionDouble NONE = new OptionDouble(false, 0);
+
+	public static OptionDouble some(double value) {
+		return new OptionDouble(true, value);
+	}
+
+	public static OptionDouble none() {
+		return NONE;
+	}
+
+	/**
+	 * Unbox an option.
+	 */
+	public static OptionDouble from(Option<Double> option) {
+		if (option.isNone()) return NONE;
+		return new OptionDouble(true, option.unwrapUnchecked());
+	}
+
+	private final boolean hasValue;
+	private final double value;
+
+	private OptionDouble(boolean hasValue, double value) {
+		this.hasValue = hasValue;
+		this.value = value;
+	}
+
+	public boolean isSome() {
+		return this.hasValue;
+	}
+
+	public boolean isSomeAnd(DoubleFilterAction action) {
+		if (!this.hasValue) return false;
+		return action.run(this.value);
+	}
+
+	public boolean isNone() {
+		return !this.hasValue;
+	}
+
+	public double expect(String message) {
+		if (!this.hasValue) throw new RuntimeException(message);
+		return this.value;
+	}
+
+	public double unwrap() {
+		return this.expect("could not unwrap value");
+	}
+
+	public double unwrapOr(double defaultValue) {
+		if (!this.hasValue) return defaultValue;
+		return this.value;
+	}
+
+	public double unwrapOrElse(DoubleAction action) {
+		if (!this.hasValue) return action.run();
+		return this.value;
+	}
+
+	public double unwrapUnchecked() {
+		return this.value;
+	}
+
+	public OptionDouble map(DoubleActionMap action) {
+		if (!this.hasValue) return NONE;
+		return OptionDouble.some(action.run(this.value));
+	}
+
+	public <U> Option<U> mapToObj(DoubleTypeActionMap<U> action) {
+		if (!this.hasValue) return Option.none();
+		return Option.some(action.run(this.value));
+	}
+
+	public OptionDouble inspect(DoubleInspectAction action) {
+		if (this.hasValue) action.run(this.value);
+		return this;
+	}
+
+	public OptionDouble mapOr(DoubleActionMap action, double defaultValue) {
+		if (!this.hasValue) return OptionDouble.some(defaultValue);
+		return OptionDouble.some(action.run(this.value));
+	}
+
+	public OptionDouble mapOrElse(DoubleActionMap action, DoubleAction defaultValueFn) {
+		if (!this.hasValue) return OptionDouble.some(defaultValueFn.run());
+		return OptionDouble.some(action.run(this.value));
+	}
+
+	public OptionDouble and(OptionDouble opt) {
+		if (!this.hasValue) return NONE;
+		return opt;
+	}
+
+	public OptionDouble andThen(DoubleTypeActionMap<OptionDouble> action) {
+		if (!this.hasValue) return NONE;
+		return action.run(this.value);
+	}
+
+	public OptionDouble filter(DoubleFilterAction predicate) {
+		if (this.hasValue && predicate.run(this.value)) {
+			return this;
+		}
+		return NONE;
+	}
+
+	public OptionDouble or(OptionDouble opt) {
+		if (this.hasValue) return this;
+		return opt;
+	}
+
+	public OptionDouble orElse(TypeAction<OptionDouble> action) {
+		if (this.hasValue) return this;
+		return action.run();
+	}
+
+	public OptionDouble xor(OptionDouble opt) {
+		if (this.hasValue && !opt.hasValue) return this;
+		if (!this.hasValue && opt.hasValue) return opt;
+		return NONE;
+	}
+
+	public boolean contains(double value) {
+		return this.hasValue && Double.compare(this.value, value) == 0;
+	}
+
+	/**
+	 * Box the value into a generic option.
+	 */
+	public Option<Double> boxed() {
+		if (!this.hasValue) return Option.none();
+		return Option.some(this.value);
+	}
+}
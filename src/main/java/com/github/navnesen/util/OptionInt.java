@@ -0,0 +1,145 @@
+package com.github.navnesen.util;
+
+import com.github.navnesen.util.common.IntAction;
+import com.github.navnesen.util.common.IntActionMap;
+import com.github.navnesen.util.common.IntFilterAction;
+import com.github.navnesen.util.common.IntInspectAction;
+import com.github.navnesen.util.common.IntTypeActionMap;
+import com.github.navnesen.util.common.TypeAction;
+
+/**
+ * An optional {@code int}, the unboxed counterpart of {@code Option<Integer>}.
+ */
+public final class OptionInt {
+	private static final OptionInt NONE = new OptionInt(false, 0);
+
+	public static OptionInt some(int value) {
+		return new OptionInt(true, value);
+	}
+
+	public static OptionInt none() {
+		return NONE;
+	}
+
+	/**
+	 * Unbox an option.
+	 */
+	public static OptionInt from(Option<Integer> option) {
+		if (option.isNone()) return NONE;
+		return new OptionInt(true, option.unwrapUnchecked());
+	}
+
+	private final boolean hasValue;
+	private final int value;
+
+	private OptionInt(boolean hasValue, int value) {
+		this.hasValue = hasValue;
+		this.value = value;
+	}
+
+	public boolean isSome() {
+		return this.hasValue;
+	}
+
+	public boolean isSomeAnd(IntFilterAction action) {
+		if (!this.hasValue) return false;
+		return action.run(this.value);
+	}
+
+	public boolean isNone() {
+		return !this.hasValue;
+	}
+
+	public int expect(String message) {
+		if (!this.hasValue) throw new RuntimeException(message);
+		return this.value;
+	}
+
+	public int unwrap() {
+		return this.expect("could not unwrap value");
+	}
+
+	public int unwrapOr(int defaultValue) {
+		if (!this.hasValue) return defaultValue;
+		return this.value;
+	}
+
+	public int unwrapOrElse(IntAction action) {
+		if (!this.hasValue) return action.run();
+		return this.value;
+	}
+
+	public int unwrapUnchecked() {
+		return this.value;
+	}
+
+	public OptionInt map(IntActionMap action) {
+		if (!this.hasValue) return NONE;
+		return OptionInt.some(action.run(this.value));
+	}
+
+	public <U> Option<U> mapToObj(IntTypeActionMap<U> action) {
+		if (!this.hasValue) return Option.none();
+		return Option.some(action.run(this.value));
+	}
+
+	public OptionInt inspect(IntInspectAction action) {
+		if (this.hasValue) action.run(this.value);
+		return this;
+	}
+
+	public OptionInt mapOr(IntActionMap action, int defaultValue) {
+		if (!this.hasValue) return OptionInt.some(defaultValue);
+		return OptionInt.some(action.run(this.value));
+	}
+
+	public OptionInt mapOrElse(IntActionMap action, IntAction defaultValueFn) {
+		if (!this.hasValue) return OptionInt.some(defaultValueFn.run());
+		return OptionInt.some(action.run(this.value));
+	}
+
+	public OptionInt and(OptionInt opt) {
+		if (!this.hasValue) return NONE;
+		return opt;
+	}
+
+	public OptionInt andThen(IntTypeActionMap<OptionInt> action) {
+		if (!this.hasValue) return NONE;
+		return action.run(this.value);
+	}
+
+	public OptionInt filter(IntFilterAction predicate) {
+		if (this.hasValue && predicate.run(this.value)) {
+			return this;
+		}
+		return NONE;
+	}
+
+	public OptionInt or(OptionInt opt) {
+		if (this.hasValue) return this;
+		return opt;
+	}
+
+	public OptionInt orElse(TypeAction<OptionInt> action) {
+		if (this.hasValue) return this;
+		return action.run();
+	}
+
+	public OptionInt xor(OptionInt opt) {
+		if (this.hasValue && !opt.hasValue) return this;
+		if (!this.hasValue && opt.hasValue) return opt;
+		return NONE;
+	}
+
+	public boolean contains(int value) {
+		return this.hasValue && this.value == value;
+	}
+
+	/**
+	 * Box the value into a generic option.
+	 */
+	public Option<Integer> boxed() {
+		if (!this.hasValue) return Option.none();
+		return Option.some(this.value);
+	}
+}
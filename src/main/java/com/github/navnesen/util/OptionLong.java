@@ -0,0 +1,155 @@
+package com.github.navnesen.util;
+
+import com.github.navnesen.util.common.LongAction;
+import com.github.navnesen.util.common.LongActionMap;
+import com.github.navnesen.util.common.LongFilterAction;
+import com.github.navnesen.util.common.LongInspectAction;
+import com.github.navnesen.util.common.LongTypeActionMap;
+import com.github.navnesen.util.common.TypeAction;
+
+/**
+ * An optional {@code long}, the unboxed counterpart of {@code Option<Long>}.
+ */
+public final class OptionLong {
+	private static final OptionLong NONE = new OptionLong(false, 0);
+
+	public static OptionLong some(long value) {
+		return new OptionLong(true, value);
+	}
+
+	public static OptionLong none() {
+		return NONE;
+	}
+
+	/**
+	 * Unbox an option.
+	 */
+	public static OptionLong from(Option<Long> option) {
+		if (option.isNone()) return NONE;
+		return new OptionLong(true, option.unwrapUnchecked());
+	}
+
+	private final boolean hasValue;
+	private final long value;
+
+	private OptionLong(boolean hasValue, long value) {
+		this.hasValue = hasValue;
+		this.value = value;
+	}
+
+	public boolean isSome() {
+		return this.hasValue;
+	}
+
+	public boolean isSomeAnd(LongFilterAction action) {
+		if (!this.hasValue) return false;
+		return action.run(this.value);
+	}
+
+	public boolean isNone() {
+		return !this.hasValue;
+	}
+
+	public long expect(String message) {
+		if (!this.hasValue) throw new RuntimeException(message);
+		return this.value;
+	}
+
+	public long unwrap() {
+		return this.expect("could not unwrap value");
+	}
+
+	public long unwrapOr(long defaultValue) {
+		if (!this.hasValue) return defaultValue;
+		return this.value;
+	}
+
+	public long unwrapOrElse(LongAction action) {
+		if (!this.hasValue) return action.run();
+		return this.value;
+	}
+
+	public long unwrapUnchecked() {
+		return this.value;
+	}
+
+	public OptionLong map(LongActionMap action) {
+		if (!this.hasValue) return NONE;
+		return OptionLong.some(action.run(this.value));
+	}
+
+	public <U> Option<U> mapToObj(LongTypeActionMap<U> action) {
+		if (!this.hasValue) return Option.none();
+		return Option.some(action.run(this.value));
+	}
+
+	public OptionLong inspect(LongInspectAction action) {
+		if (this.hasValue) action.run(this.value);
+		return this;
+	}
+
+	public OptionLong mapOr(LongActionMap action, long defaultValue) {
+		if (!this.hasValue) return OptionLong.some(defaultValue);
+		return OptionLong.some(action.run(this.value));
+	}
+
+	public OptionLong mapOrElse(LongActionMap action, LongAction defaultValueFn) {
+		if (!this.hasValue) return OptionLong.some(defaultValueFn.run());
+		return OptionLong.some(action.run(this.value));
+	}
+
+	public <E> ResultLong<E> okOr(E err) {
+		if (!this.hasValue) return ResultLong.err(err);
+		return ResultLong.ok(this.value);
+	}
+
+	public <E> ResultLong<E> okOrElse(TypeAction<E> action) {
+		if (!this.hasValue) return ResultLong.err(action.run());
+		return ResultLong.ok(this.value);
+	}
+
+	public OptionLong and(OptionLong opt) {
+		if (!this.hasValue) return NONE;
+		return opt;
+	}
+
+	public OptionLong andThen(LongTypeActionMap<OptionLong> action) {
+		if (!this.hasValue) return NONE;
+		return action.run(this.value);
+	}
+
+	public OptionLong filter(LongFilterAction predicate) {
+		if (this.hasValue && predicate.run(this.value)) {
+			return this;
+		}
+		return NONE;
+	}
+
+	public OptionLong or(OptionLong opt) {
+		if (this.hasValue) return this;
+		return opt;
+	}
+
+	public OptionLong orElse(TypeAction<OptionLong> action) {
+		if (this.hasValue) return this;
+		return action.run();
+	}
+
+	public OptionLong xor(OptionLong opt) {
+		if (this.hasValue && !opt.hasValue) return this;
+		if (!this.hasValue && opt.hasValue) return opt;
+		return NONE;
+	}
+
+	public boolean contains(long value) {
+		return this.hasValue && this.value == value;
+	}
+
+	/**
+	 * Box the value into a generic option.
+	 */
+	public Option<Long> boxed() {
+		if (!this.hasValue) return Option.none();
+		return Option.some(this.value);
+	}
+}
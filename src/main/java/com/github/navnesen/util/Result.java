@@ -4,21 +4,29 @@ import com.github.navnesen.util.common.InspectAction;
 import com.github.navnesen.util.common.TypeAction;
 import com.github.navnesen.util.common.TypeActionMap;
 
-public class Result<O, E> {
+/**
+ * The outcome of an operation that either succeeded with a value or failed
+ * with an error. Results are immutable, and combinators that leave the
+ * outcome as it is return the same instance.
+ *
+ * @param <O> the type of the value.
+ * @param <E> the type of the error.
+ */
+public final class Result<O, E> {
 
 	public static <O, E> Result<O, E> ok(O value) {
 		return new Result<>(false, value, null);
 	}
 
 	public static <O, E> Result<O, E> err(E exception) {
-		return new Result<>(false, null, exception);
+		return new Result<>(true, null, exception);
 	}
 
-	protected boolean isError;
-	protected E exception;
-	protected O value;
+	private final boolean isError;
+	private final E exception;
+	private final O value;
 
-	protected Result(boolean isError, O value, E exception) {
+	private Result(boolean isError, O value, E exception) {
 		this.isError = isError;
 		this.value = value;
 		this.exception = exception;
@@ -51,7 +59,7 @@ public class Result<O, E> {
 	}
 
 	public <U> Result<U, E> map(TypeActionMap<O, U> action) {
-		if (this.isErr()) return Result.err(this.exception);
+		if (this.isErr()) return this.castOk();
 		return Result.ok(action.run(this.value));
 	}
 
@@ -66,7 +74,7 @@ public class Result<O, E> {
 	}
 
 	public <U> Result<O, U> mapErr(TypeActionMap<E, U> action) {
-		if (this.isOk()) return Result.ok(this.value);
+		if (this.isOk()) return this.castErr();
 		return Result.err(action.run(this.exception));
 	}
 
@@ -107,22 +115,22 @@ public class Result<O, E> {
 	}
 
 	public <U> Result<U, E> and(Result<U, E> res) {
-		if (this.isErr()) return Result.err(this.exception);
+		if (this.isErr()) return this.castOk();
 		return res;
 	}
 
 	public <U> Result<U, E> andThen(TypeActionMap<O, Result<U, E>> action) {
-		if (this.isErr()) return Result.err(this.exception);
+		if (this.isErr()) return this.castOk();
 		return action.run(this.value);
 	}
 
 	public <F> Result<O, F> or(Result<O, F> res) {
-		if (this.isOk()) return Result.ok(this.value);
+		if (this.isOk()) return this.castErr();
 		return res;
 	}
 
 	public <F> Result<O, F> orElse(TypeActionMap<E, Result<O, F>> action) {
-		if (this.isOk()) return Result.ok(this.value);
+		if (this.isOk()) return this.castErr();
 		return action.run(this.exception);
 	}
 
@@ -145,4 +153,22 @@ public class Result<O, E> {
 		if (this.isOk()) return false;
 		return this.exception == f;
 	}
+
+	/**
+	 * Reuse an error result as a result with another value type. Safe since
+	 * an error result holds no value.
+	 */
+	@SuppressWarnings("unchecked")
+	private <U> Result<U, E> castOk() {
+		return (Result<U, E>) this;
+	}
+
+	/**
+	 * Reuse an ok result as a result with another error type. Safe since an
+	 * ok result holds no error.
+	 */
+	@SuppressWarnings("unchecked")
+	private <F> Result<O, F> castErr() {
+		return (Result<O, F>) this;
+	}
 }
@@ -0,0 +1,183 @@
+package com.github.navnesen.util;
+
+import com.github.navnesen.util.common.InspectAction;
+import com.github.navnesen.util.common.LongActionMap;
+import com.github.navnesen.util.common.LongFilterAction;
+import com.github.navnesen.util.common.LongInspectAction;
+import com.github.navnesen.util.common.LongTypeActionMap;
+import com.github.navnesen.util.common.ToLongActionMap;
+import com.github.navnesen.util.common.TypeActionMap;
+
+/**
+ * The outcome of an operation that either succeeded with a {@code long} or
+ * failed with an error, the unboxed counterpart of {@code Result<Long, E>}.
+ *
+ * @param <E> the type of the error.
+ */
+public final class ResultLong<E> {
+
+	public static <E> ResultLong<E> ok(long value) {
+		return new ResultLong<>(false, value, null);
+	}
+
+	public static <E> ResultLong<E> err(E exception) {
+		return new ResultLong<>(true, 0, exception);
+	}
+
+	/**
+	 * Unbox a result.
+	 */
+	public static <E> ResultLong<E> from(Result<Long, E> result) {
+		if (result.isErr()) return ResultLong.err(result.unwrapErrUnchecked());
+		return ResultLong.ok(result.unwrapUnchecked());
+	}
+
+	private final boolean isError;
+	private final E exception;
+	private final long value;
+
+	private ResultLong(boolean isError, long value, E exception) {
+		this.isError = isError;
+		this.value = value;
+		this.exception = exception;
+	}
+
+	public boolean isOk() {
+		return !this.isError;
+	}
+
+	public boolean isOkAnd(LongFilterAction action) {
+		if (this.isErr()) return false;
+		return action.run(this.value);
+	}
+
+	public boolean isErr() {
+		return this.isError;
+	}
+
+	public boolean isErrAnd(TypeActionMap<E, Boolean> action) {
+		if (this.isOk()) return false;
+		return action.run(this.exception);
+	}
+
+	public OptionLong ok() {
+		return this.isError ? OptionLong.none() : OptionLong.some(this.value);
+	}
+
+	public Option<E> err() {
+		return this.isError ? Option.some(this.exception) : Option.none();
+	}
+
+	public ResultLong<E> map(LongActionMap action) {
+		if (this.isErr()) return this;
+		return ResultLong.ok(action.run(this.value));
+	}
+
+	public <U> Result<U, E> mapToObj(LongTypeActionMap<U> action) {
+		if (this.isErr()) return Result.err(this.exception);
+		return Result.ok(action.run(this.value));
+	}
+
+	public ResultLong<E> mapOr(LongActionMap action, long defaultValue) {
+		if (this.isErr()) return ResultLong.ok(action.run(defaultValue));
+		return ResultLong.ok(action.run(this.value));
+	}
+
+	public <U> ResultLong<U> mapErr(TypeActionMap<E, U> action) {
+		if (this.isOk()) return this.castErr();
+		return ResultLong.err(action.run(this.exception));
+	}
+
+	public ResultLong<E> inspect(LongInspectAction action) {
+		if (this.isOk()) action.run(this.value);
+		return this;
+	}
+
+	public ResultLong<E> inspectErr(InspectAction<E> action) {
+		if (this.isErr()) action.run(this.exception);
+		return this;
+	}
+
+	public long expect(String message) {
+		if (this.isErr()) throw new RuntimeException(message);
+		return this.value;
+	}
+
+	public long unwrap() {
+		return this.expect("could not unwrap value");
+	}
+
+	public long unwrapUnchecked() {
+		return this.value;
+	}
+
+	public E expectErr(String message) {
+		if (this.isOk()) throw new RuntimeException(message);
+		return this.exception;
+	}
+
+	public E unwrapErr() {
+		return this.expectErr("could not unwrap error");
+	}
+
+	public E unwrapErrUnchecked() {
+		return this.exception;
+	}
+
+	public ResultLong<E> and(ResultLong<E> res) {
+		if (this.isErr()) return this;
+		return res;
+	}
+
+	public ResultLong<E> andThen(LongTypeActionMap<ResultLong<E>> action) {
+		if (this.isErr()) return this;
+		return action.run(this.value);
+	}
+
+	public <F> ResultLong<F> or(ResultLong<F> res) {
+		if (this.isOk()) return this.castErr();
+		return res;
+	}
+
+	public <F> ResultLong<F> orElse(TypeActionMap<E, ResultLong<F>> action) {
+		if (this.isOk()) return this.castErr();
+		return action.run(this.exception);
+	}
+
+	public long unwrapOr(long defaultValue) {
+		if (this.isOk()) return this.value;
+		return defaultValue;
+	}
+
+	public long unwrapOrElse(ToLongActionMap<E> action) {
+		if (this.isOk()) return this.value;
+		return action.run(this.exception);
+	}
+
+	public boolean contains(long x) {
+		if (this.isErr()) return false;
+		return this.value == x;
+	}
+
+	public <F> boolean containsErr(F f) {
+		if (this.isOk()) return false;
+		return this.exception == f;
+	}
+
+	/**
+	 * Box the value into a generic result.
+	 */
+	public Result<Long, E> boxed() {
+		if (this.isErr()) return Result.err(this.exception);
+		return Result.ok(this.value);
+	}
+
+	/**
+	 * Reuse an ok result as a result with another error type. Safe since an
+	 * ok result holds no error.
+	 */
+	@SuppressWarnings("unchecked")
+	private <F> ResultLong<F> castErr() {
+		return (ResultLong<F>) this;
+	}
+}
@@ -0,0 +1,5 @@
+package com.github.navnesen.util.common;
+
+public interface IntActionMap {
+	int run(int value);
+}
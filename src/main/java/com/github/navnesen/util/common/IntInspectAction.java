@@ -0,0 +1,5 @@
+package com.github.navnesen.util.common;
+
+public interface IntInspectAction {
+	void run(int value);
+}
@@ -0,0 +1,5 @@
+package com.github.navnesen.util.common;
+
+public interface IntTypeActionMap<U> {
+	U run(int value);
+}
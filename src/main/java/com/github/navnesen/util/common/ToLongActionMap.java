@@ -0,0 +1,5 @@
+package com.github.navnesen.util.common;
+
+public interface ToLongActionMap<T> {
+	long run(T value);
+}
@@ -0,0 +1,88 @@
+import com.github.navnesen.async.AsyncExecutors;
+import com.github.navnesen.async.AsyncResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncExecutorsTest {
+
+	@Test
+	public void testCallerRunsOnCallingThread() {
+		var caller = Thread.currentThread();
+		var result = new AsyncResult<>(Thread::currentThread, AsyncExecutors.callerRuns());
+		// the action ran before the constructor returned
+		assertTrue(result.isDone());
+		assertSame(caller, result.unwrap());
+	}
+
+	@Test
+	public void testForkJoinRunsOnPool() throws Exception {
+		var pool = AsyncExecutors.forkJoin(2);
+		try {
+			var thread = new AsyncResult<>(Thread::currentThread, pool).unwrap();
+			assertNotSame(Thread.currentThread(), thread);
+			assertTrue(thread.getName().contains("ForkJoinPool"));
+		} finally {
+			pool.shutdown();
+			assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void testVirtualThreadsIsShared() {
+		var executor = AsyncExecutors.virtualThreads();
+		assertSame(executor, AsyncExecutors.virtualThreads());
+		var thread = new AsyncResult<>(Thread::currentThread, executor).unwrap();
+		assertNotSame(Thread.currentThread(), thread);
+		// a virtual thread, or a daemon thread of the fallback pool
+		assertTrue(thread.isDaemon());
+	}
+
+	@Test
+	public void testSetDefault() {
+		var previous = AsyncExecutors.getDefault();
+		var counter = new AtomicInteger();
+		Executor counting = task -> {
+			counter.incrementAndGet();
+			task.run();
+		};
+		AsyncExecutors.setDefault(counting);
+		try {
+			assertSame(counting, AsyncExecutors.getDefault());
+			assertEquals(1, new AsyncResult<>(() -> 1).unwrap());
+			assertEquals(1, counter.get());
+		} finally {
+			AsyncExecutors.setDefault(previous);
+		}
+		assertSame(previous, AsyncExecutors.getDefault());
+		assertThrows(NullPointerException.class, () -> AsyncExecutors.setDefault(null));
+	}
+
+	@Test
+	public void testSetDefaultIsNotOverwritten() throws Exception {
+		var previous = AsyncExecutors.getDefault();
+		Executor custom = Runnable::run;
+		try {
+			var readers = new Thread[4];
+			for (int i = 0; i < readers.length; i++) {
+				readers[i] = new Thread(() -> {
+					for (int j = 0; j < 1000; j++) {
+						AsyncExecutors.getDefault();
+					}
+				});
+				readers[i].start();
+			}
+			AsyncExecutors.setDefault(custom);
+			for (var reader : readers) {
+				reader.join();
+			}
+			assertSame(custom, AsyncExecutors.getDefault());
+		} finally {
+			AsyncExecutors.setDefault(previous);
+		}
+	}
+}
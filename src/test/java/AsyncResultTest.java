@@ -0,0 +1,213 @@
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.async.AsyncExecutors;
+import com.github.navnesen.async.DeferredAsyncResult;
+import com.github.navnesen.async.StackTraceMode;
+import com.github.navnesen.async.common.AggregateException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncResultTest {
+
+	@Test
+	public void testAwaitFromAction() {
+		var result = new AsyncResult<>(() -> {
+			Thread.sleep(100);
+			return 1;
+		});
+		assertEquals(1, result.unwrap());
+	}
+
+	@Test
+	public void testChainRunsAsContinuations() {
+		var source = new DeferredAsyncResult<Integer>();
+		final List<String> threads = new ArrayList<>();
+		var chain = source
+			.map(value -> value + 1)
+			.inspect(value -> threads.add(Thread.currentThread().getName()))
+			.andThen(value -> AsyncResult.ok(value * 2))
+			.map(value -> value - 1);
+
+		assertFalse(chain.isDone());
+		source.okay(1);
+
+		// every step ran on the thread that completed the source
+		assertTrue(chain.isDone());
+		assertEquals(List.of(Thread.currentThread().getName()), threads);
+		assertEquals(3, chain.unwrap());
+	}
+
+	@Test
+	public void testErrorSkipsSteps() {
+		var source = new DeferredAsyncResult<Integer>();
+		final List<Integer> seen = new ArrayList<>();
+		var chain = source
+			.map(value -> value + 1)
+			.inspect(seen::add)
+			.orElse(exception -> AsyncResult.ok(-1));
+
+		source.error(new RuntimeException("failed"));
+		assertTrue(seen.isEmpty());
+		assertEquals(-1, chain.unwrap());
+	}
+
+	@Test
+	public void testThrowingStepFailsResult() {
+		var result = AsyncResult.ok(1).map(value -> {
+			throw new IllegalStateException("boom");
+		});
+		var completion = result.await();
+		assertTrue(completion.isErr());
+		assertInstanceOf(IllegalStateException.class, completion.unwrapErr());
+	}
+
+	@Test
+	public void testCompletionStageInterop() {
+		var future = new CompletableFuture<Integer>();
+		var result = AsyncResult.from(future.thenApply(value -> value * 2));
+		assertFalse(result.isDone());
+		future.complete(21);
+		assertTrue(result.isDone());
+		assertEquals(42, result.unwrap());
+
+		var failed = new CompletableFuture<Integer>();
+		var derived = AsyncResult.from(failed.thenApply(value -> value));
+		failed.completeExceptionally(new IllegalStateException("failed"));
+		assertInstanceOf(IllegalStateException.class, derived.await().unwrapErr());
+
+		var deferred = new DeferredAsyncResult<String>();
+		var converted = deferred.toCompletableFuture();
+		var stage = deferred.toCompletionStage().thenApply(String::length).toCompletableFuture();
+		assertFalse(converted.isDone());
+		deferred.okay("done");
+		assertEquals("done", converted.join());
+		assertEquals(4, stage.join());
+	}
+
+	@Test
+	public void testCombinators() {
+		var a = new DeferredAsyncResult<Integer>();
+		var b = new DeferredAsyncResult<Integer>();
+		var all = AsyncResult.all(a, b);
+		var settled = AsyncResult.allSettled(a, b);
+		var any = AsyncResult.any(a, b);
+		var race = AsyncResult.race(a, b);
+
+		b.okay(2);
+		assertFalse(all.isDone());
+		int first = any.unwrap();
+		assertEquals(2, first);
+		int winner = race.unwrap();
+		assertEquals(2, winner);
+
+		a.okay(1);
+		assertEquals(List.of(1, 2), all.unwrap());
+		assertEquals(2, settled.unwrap().size());
+
+		// all fails as soon as one input fails
+		var failing = new DeferredAsyncResult<Integer>();
+		var pending = new DeferredAsyncResult<Integer>();
+		var failedAll = AsyncResult.all(pending, failing);
+		failing.error(new IllegalStateException("failed"));
+		assertInstanceOf(IllegalStateException.class, failedAll.await().unwrapErr());
+
+		var failedAny = AsyncResult.any(List.of(failing, AsyncResult.<Integer>err(new RuntimeException("also failed"))));
+		assertInstanceOf(AggregateException.class, failedAny.await().unwrapErr());
+		assertEquals(2, failedAny.await().unwrapErr().getSuppressed().length);
+	}
+
+	@Test
+	public void testTimeoutAndDelay() {
+		var never = new DeferredAsyncResult<Integer>();
+		var timedOut = never.timeout(Duration.ofMillis(20));
+		assertInstanceOf(TimeoutException.class, timedOut.await().unwrapErr());
+
+		var delayed = AsyncResult.delay(Duration.ofMillis(10), 42);
+		assertFalse(delayed.isDone());
+		int value = delayed.timeout(Duration.ofSeconds(5)).unwrap();
+		assertEquals(42, value);
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		// cancelling a derived result cancels its source, and skips every
+		// step in between, error handlers included
+		var source = new DeferredAsyncResult<Integer>();
+		final List<String> seen = new ArrayList<>();
+		var chain = source
+			.map(value -> value + 1)
+			.inspectErr(exception -> seen.add("inspectErr"))
+			.orElse(exception -> AsyncResult.ok(-1));
+		assertTrue(chain.cancel());
+		assertTrue(chain.isCancelled());
+		assertTrue(source.isCancelled());
+		assertEquals(List.of(), seen);
+		assertInstanceOf(CancellationException.class, chain.await().unwrapErr());
+
+		// the producer may complete a cancelled result without failing
+		source.okay(1);
+		assertFalse(chain.cancel());
+
+		// a source with another pending dependent is kept
+		var shared = new DeferredAsyncResult<Integer>();
+		var first = shared.map(value -> value);
+		var second = shared.map(value -> value);
+		first.cancel();
+		assertFalse(shared.isDone());
+		shared.okay(2);
+		int kept = second.unwrap();
+		assertEquals(2, kept);
+
+		// the losers of a race are cancelled
+		var slow = new DeferredAsyncResult<Integer>();
+		AsyncResult.race(slow, AsyncResult.ok(1)).unwrap();
+		assertTrue(slow.isCancelled());
+
+		// a running action is interrupted
+		var started = new CountDownLatch(1);
+		var running = new AsyncResult<Integer>(() -> {
+			started.countDown();
+			Thread.sleep(10_000);
+			return 1;
+		});
+		started.await();
+		running.cancel();
+		assertInstanceOf(CancellationException.class, running.await().unwrapErr());
+
+		var future = new DeferredAsyncResult<Integer>();
+		future.toCompletableFuture().cancel(true);
+		assertTrue(future.isCancelled());
+	}
+
+	private static boolean showsCaller(StackTraceMode mode) {
+		var pool = AsyncExecutors.forkJoin(1);
+		try {
+			var result = AsyncResult.run(() -> {
+				throw new IllegalStateException("failed");
+			}, pool, mode);
+			return Arrays.stream(result.await().unwrapErr().getStackTrace())
+				.anyMatch(element -> element.getMethodName().equals("showsCaller"));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testStackTraceModes() {
+		assertTrue(showsCaller(StackTraceMode.FULL));
+		assertTrue(showsCaller(StackTraceMode.LAZY));
+		assertFalse(showsCaller(StackTraceMode.OFF));
+		assertSame(StackTraceMode.FULL, StackTraceMode.sampled(1));
+		assertEquals("sampled:8", StackTraceMode.parse("sampled:8").toString());
+		assertThrows(IllegalArgumentException.class, () -> StackTraceMode.parse("sometimes"));
+	}
+}
@@ -0,0 +1,96 @@
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.async.AsyncScope;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncScopeTest {
+
+	@Test
+	public void testCloseWaitsForForks() {
+		final List<AsyncResult<Integer>> results = new ArrayList<>();
+		try (var scope = new AsyncScope()) {
+			for (int i = 0; i < 10; i++) {
+				final int value = i;
+				results.add(scope.fork(() -> {
+					Thread.sleep(10);
+					return value;
+				}));
+			}
+		}
+		for (int i = 0; i < 10; i++) {
+			assertTrue(results.get(i).isDone());
+			int value = results.get(i).unwrap();
+			assertEquals(i, value);
+		}
+	}
+
+	@Test
+	public void testFailureCancelsSiblings() {
+		AsyncResult<Integer> sibling;
+		AsyncResult<Void> joined;
+		try (var scope = new AsyncScope(true)) {
+			sibling = scope.fork(() -> {
+				Thread.sleep(10_000);
+				return 1;
+			});
+			scope.fork(() -> {
+				throw new IllegalStateException("failed");
+			});
+			joined = scope.join();
+		}
+		assertInstanceOf(IllegalStateException.class, joined.await().unwrapErr());
+		assertInstanceOf(CancellationException.class, sibling.await().unwrapErr());
+	}
+
+	@Test
+	public void testConcurrencyLimit() {
+		final AtomicInteger running = new AtomicInteger(0);
+		final AtomicInteger maxRunning = new AtomicInteger(0);
+		try (var scope = new AsyncScope(false, 3)) {
+			for (int i = 0; i < 30; i++) {
+				scope.fork(() -> {
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					Thread.sleep(2);
+					running.decrementAndGet();
+					return null;
+				});
+			}
+			scope.join().unwrap();
+		}
+		assertTrue(maxRunning.get() <= 3);
+		assertTrue(maxRunning.get() > 1);
+	}
+
+	@Test
+	public void testCloseWaitsForSiblingThatIgnoresInterrupt() {
+		final CountDownLatch started = new CountDownLatch(1);
+		final AtomicBoolean ended = new AtomicBoolean(false);
+		AsyncResult<Integer> sibling;
+		try (var scope = new AsyncScope(true)) {
+			sibling = scope.fork(() -> {
+				started.countDown();
+				var until = System.nanoTime() + 200_000_000L;
+				while (System.nanoTime() < until) {
+					// clears the interrupt and keeps going
+					Thread.interrupted();
+				}
+				ended.set(true);
+				return 1;
+			});
+			scope.fork(() -> {
+				started.await();
+				throw new IllegalStateException("failed");
+			});
+		}
+		assertTrue(sibling.isCancelled());
+		assertTrue(ended.get());
+	}
+}
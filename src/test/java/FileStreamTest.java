@@ -0,0 +1,91 @@
+import com.github.navnesen.streams.ReadableStream;
+import com.github.navnesen.streams.WritableStream;
+import com.github.navnesen.streams.common.MappedFile;
+import com.github.navnesen.util.Option;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileStreamTest {
+
+	private static Path tempFile(int size) throws IOException {
+		var path = Files.createTempFile("streams", ".bin");
+		path.toFile().deleteOnExit();
+		var bytes = new byte[size];
+		for (int i = 0; i < size; i++) {
+			bytes[i] = (byte) i;
+		}
+		Files.write(path, bytes);
+		return path;
+	}
+
+	@Test
+	public void testReadFileInChunks() throws IOException {
+		var path = tempFile(10_000);
+		var stream = ReadableStream.fromFile(path, 4096).unwrap();
+		var bytes = new ByteArrayOutputStream();
+		try (var reader = stream.getReader().unwrap()) {
+			Option<ByteBuffer> chunk;
+			while ((chunk = reader.read().unwrap()).isSome()) {
+				var buffer = chunk.unwrap();
+				assertTrue(buffer.remaining() <= 4096);
+				var copy = new byte[buffer.remaining()];
+				buffer.get(copy);
+				bytes.write(copy);
+			}
+		}
+		assertArrayEquals(Files.readAllBytes(path), bytes.toByteArray());
+	}
+
+	@Test
+	public void testMappedWindowsAdvance() throws IOException {
+		var path = tempFile(1000);
+		try (var file = MappedFile.open(path, 64, 100).unwrap()) {
+			var target = ByteBuffer.allocate(1000);
+			int count;
+			while ((count = file.readInto(target).unwrap()) >= 0) {
+				// a read never crosses the end of a window
+				assertTrue(count <= 100);
+			}
+			assertArrayEquals(Files.readAllBytes(path), target.array());
+		}
+	}
+
+	@Test
+	public void testPipeFileToFile() throws IOException {
+		var source = tempFile(100_000);
+		var target = Files.createTempFile("streams", ".bin");
+		target.toFile().deleteOnExit();
+
+		var stream = ReadableStream.fromFile(source, 4096).unwrap();
+		stream.pipeTo(WritableStream.toFile(target).unwrap()).unwrap();
+		assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(target));
+	}
+
+	@Test
+	public void testWriteChunksToFile() throws IOException {
+		var target = Files.createTempFile("streams", ".bin");
+		target.toFile().deleteOnExit();
+
+		var stream = new ReadableStream<ByteBuffer>();
+		for (int i = 0; i < 10; i++) {
+			var chunk = new byte[100];
+			Arrays.fill(chunk, (byte) i);
+			stream.tryEnqueue(ByteBuffer.wrap(chunk));
+		}
+		stream.close();
+		stream.pipeTo(WritableStream.toFile(target).unwrap()).unwrap();
+
+		var written = Files.readAllBytes(target);
+		assertEquals(1000, written.length);
+		int last = written[999];
+		assertEquals(9, last);
+	}
+}
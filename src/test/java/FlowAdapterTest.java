@@ -0,0 +1,137 @@
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.streams.ReadableStream;
+import com.github.navnesen.streams.WritableStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlowAdapterTest {
+
+	@Test
+	public void testToPublisherHonoursDemand() throws InterruptedException {
+		var stream = new ReadableStream<Integer>();
+		for (int i = 0; i < 10; i++) {
+			stream.tryEnqueue(i);
+		}
+		stream.close();
+
+		final List<Integer> received = new ArrayList<>();
+		final CountDownLatch firstThree = new CountDownLatch(3);
+		final CountDownLatch completed = new CountDownLatch(1);
+		final Flow.Subscription[] subscription = new Flow.Subscription[1];
+		stream.toPublisher().subscribe(new Flow.Subscriber<>() {
+			@Override
+			public void onSubscribe(Flow.Subscription s) {
+				subscription[0] = s;
+			}
+
+			@Override
+			public void onNext(Integer item) {
+				received.add(item);
+				firstThree.countDown();
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+			}
+
+			@Override
+			public void onComplete() {
+				completed.countDown();
+			}
+		});
+
+		// the reader is acquired asynchronously, so delivery may be too
+		subscription[0].request(3);
+		assertTrue(firstThree.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of(0, 1, 2), received);
+		subscription[0].request(100);
+		assertTrue(completed.await(5, TimeUnit.SECONDS));
+		assertEquals(10, received.size());
+	}
+
+	@Test
+	public void testFromPublisherToSubscriber() throws InterruptedException {
+		final CountDownLatch sinkClosed = new CountDownLatch(1);
+		var sink = new WritableStreamTest.RecordingSink() {
+			@Override
+			public synchronized AsyncResult<Void> close() {
+				sinkClosed.countDown();
+				return super.close();
+			}
+		};
+		var writable = new WritableStream<>(sink, 8);
+
+		try (var publisher = new SubmissionPublisher<Integer>()) {
+			var stream = ReadableStream.fromPublisher(publisher, 16);
+			stream.toPublisher().subscribe(writable.toSubscriber());
+			for (int i = 0; i < 1000; i++) {
+				publisher.submit(i);
+			}
+		}
+		assertTrue(sinkClosed.await(5, TimeUnit.SECONDS));
+
+		final List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			expected.add(i);
+		}
+		assertEquals(expected, sink.chunks);
+	}
+
+	@Test
+	public void testInvalidRequestSignalsError() throws InterruptedException {
+		var stream = new ReadableStream<Integer>();
+		stream.tryEnqueue(1);
+
+		final List<Throwable> errors = new ArrayList<>();
+		final CountDownLatch failed = new CountDownLatch(1);
+		final Flow.Subscription[] subscription = new Flow.Subscription[1];
+		stream.toPublisher().subscribe(new Flow.Subscriber<>() {
+			@Override
+			public void onSubscribe(Flow.Subscription s) {
+				subscription[0] = s;
+			}
+
+			@Override
+			public void onNext(Integer item) {
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+				errors.add(throwable);
+				failed.countDown();
+			}
+
+			@Override
+			public void onComplete() {
+			}
+		});
+
+		subscription[0].request(0);
+		assertTrue(failed.await(5, TimeUnit.SECONDS));
+		subscription[0].request(-1);
+		subscription[0].request(1);
+		// the subscription is over, so later requests signal nothing
+		assertEquals(1, errors.size());
+		assertInstanceOf(IllegalArgumentException.class, errors.get(0));
+	}
+
+	@Test
+	public void testSubscriberKeepsPublisherError() {
+		var sink = new WritableStreamTest.RecordingSink();
+		var writable = new WritableStream<>(sink);
+		var subscriber = writable.toSubscriber();
+
+		var exception = new IllegalStateException();
+		subscriber.onError(exception);
+		assertEquals("java.lang.IllegalStateException", sink.aborted.unwrap());
+		assertSame(exception, writable.write(1).await().unwrapErr());
+	}
+}
@@ -1,6 +1,7 @@
 import com.github.navnesen.sync.Mutex;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -48,4 +49,82 @@ public class MutexTest {
 		System.out.println(_lockReceived.get() - _lockRequested.get());
 		assert _lockReceived.get() - _lockRequested.get() > 200;
 	}
+
+	@Test
+	public void testContendedMutex() throws InterruptedException {
+		Mutex<Integer> mutex = new Mutex<>(0);
+		var threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 10_000; j++) {
+					try (var lock = mutex.lock()) {
+						lock.set(lock.get() + 1);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (var thread : threads) {
+			thread.join();
+		}
+		try (var lock = mutex.lock()) {
+			assert lock.get() == threads.length * 10_000;
+		}
+	}
+
+	@Test
+	public void testTryLock() throws InterruptedException {
+		Mutex<Integer> mutex = new Mutex<>(0);
+		var lock = mutex.lock();
+
+		assert mutex.tryLock().isNone();
+		var requested = System.nanoTime();
+		assert mutex.tryLock(Duration.ofMillis(100)).isNone();
+		assert System.nanoTime() - requested >= Duration.ofMillis(100).toNanos();
+
+		final AtomicReference<Boolean> interrupted = new AtomicReference<>(null);
+		var th = new Thread(() -> interrupted.set(mutex.lockInterruptibly().isErr()));
+		th.start();
+		Thread.sleep(100);
+		th.interrupt();
+		th.join();
+		assert interrupted.get();
+
+		lock.release();
+		// the cancelled waiters must not hold on to the lock
+		var locked = mutex.tryLock(Duration.ofMillis(100));
+		assert locked.isSome();
+		locked.unwrap().release();
+		assert mutex.lockInterruptibly().isOk();
+	}
+
+	/**
+	 * Exposes the spin limit adjustment of {@link Mutex}.
+	 */
+	static class SpinProbe extends Mutex<Integer> {
+		SpinProbe() {
+			super(0);
+		}
+
+		static int next(int limit, boolean acquired) {
+			return Mutex.nextSpins(limit, acquired);
+		}
+	}
+
+	@Test
+	public void testSpinningRecoversAfterContention() {
+		// a long stretch of failed spins must not switch spinning off for good
+		int limit = 1 << 6;
+		for (int i = 0; i < 100; i++) {
+			limit = SpinProbe.next(limit, false);
+		}
+		assert limit >= 1;
+
+		// once spinning pays off again, the limit grows back
+		int recovered = limit;
+		for (int i = 0; i < 4; i++) {
+			recovered = SpinProbe.next(recovered, true);
+		}
+		assert recovered > limit;
+	}
 }
@@ -0,0 +1,80 @@
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.OptionCell;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OptionTest {
+
+	@Test
+	public void testNoneIsShared() {
+		assertSame(Option.<String>none(), Option.<Integer>none());
+		assertSame(Option.none(), Option.some(1).filter(v -> v > 1));
+		assertSame(Option.none(), Option.<Integer>none().map(v -> v + 1));
+		assertSame(Option.none(), Option.some(1).xor(Option.some(2)));
+		assertSame(Option.none(), Option.<Integer>none().and(Option.some(2)));
+		assertSame(Option.none(), OptionCell.empty().get());
+	}
+
+	@Test
+	public void testCombinatorsDoNotRewrap() {
+		var some = Option.some("a");
+		var other = Option.some("b");
+
+		var seen = new ArrayList<String>();
+		assertSame(some, some.inspect(seen::add));
+		assertEquals(1, seen.size());
+		assertSame(some, some.filter(v -> v.equals("a")));
+		assertSame(some, some.or(other));
+		assertSame(some, some.orElse(() -> other));
+		assertSame(some, some.xor(Option.none()));
+		assertSame(other, Option.<String>none().or(other));
+		assertSame(other, Option.<String>none().xor(other));
+		assertSame(other, some.and(other));
+	}
+
+	@Test
+	public void testMapAndUnwrap() {
+		var some = Option.some(2);
+		assertTrue(some.isSome());
+		assertTrue(some.isSomeAnd(v -> v == 2));
+		assertEquals(3, some.map(v -> v + 1).unwrap());
+		assertEquals(2, some.unwrapOr(5));
+		assertEquals(5, Option.<Integer>none().unwrapOr(5));
+		assertEquals(7, Option.<Integer>none().mapOr(v -> v + 1, 7).unwrap());
+		assertTrue(Option.none().isNone());
+		assertThrows(RuntimeException.class, () -> Option.none().unwrap());
+
+		assertEquals(2, some.okOr("missing").unwrap());
+		assertEquals("missing", Option.<Integer>none().okOr("missing").unwrapErr());
+	}
+
+	@Test
+	public void testCellMutation() {
+		var cell = OptionCell.<String>empty();
+		assertTrue(cell.isNone());
+		assertEquals("a", cell.getOrInsert("a"));
+		assertEquals("a", cell.getOrInsert("b"));
+		assertEquals("a", cell.getOrInsertWith(() -> "c"));
+
+		// replacing hands back what was there
+		var previous = cell.replace("d");
+		assertEquals("a", previous.unwrap());
+		assertEquals("d", cell.get().unwrap());
+
+		// an option read from the cell does not follow later changes
+		var snapshot = cell.get();
+		assertEquals("e", cell.insert("e"));
+		assertEquals("d", snapshot.unwrap());
+
+		// taking empties the cell
+		assertEquals("e", cell.take().unwrap());
+		assertTrue(cell.isNone());
+		assertSame(Option.none(), cell.take());
+		assertSame(Option.none(), cell.replace("f"));
+		assertEquals("g", OptionCell.<String>empty().getOrInsertWith(() -> "g"));
+		assertEquals("f", OptionCell.of(Option.some("f")).get().unwrap());
+	}
+}
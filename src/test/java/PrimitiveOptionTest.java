@@ -0,0 +1,134 @@
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.OptionDouble;
+import com.github.navnesen.util.OptionInt;
+import com.github.navnesen.util.OptionLong;
+import com.github.navnesen.util.Result;
+import com.github.navnesen.util.ResultLong;
+import com.github.navnesen.util.common.IntActionMap;
+import com.github.navnesen.util.common.IntFilterAction;
+import com.github.navnesen.util.common.LongTypeActionMap;
+import com.github.navnesen.util.common.ToLongActionMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrimitiveOptionTest {
+
+	@Test
+	public void testOptionInt() {
+		var some = OptionInt.some(2);
+		assertTrue(some.isSome());
+		assertTrue(some.isSomeAnd(v -> v == 2));
+		assertFalse(some.isSomeAnd(v -> v == 3));
+		assertEquals(4, some.map(v -> v * 2).unwrap());
+		assertEquals("2", some.mapToObj(Integer::toString).unwrap());
+		assertEquals(2, some.unwrapOr(7));
+		assertTrue(some.contains(2));
+
+		var none = OptionInt.none();
+		assertTrue(none.isNone());
+		assertFalse(none.isSomeAnd(v -> true));
+		assertEquals(7, none.unwrapOr(7));
+		assertEquals(8, none.unwrapOrElse(() -> 8));
+		assertEquals(9, none.mapOr(v -> v, 9).unwrap());
+		assertFalse(none.contains(0));
+		assertThrows(RuntimeException.class, none::unwrap);
+
+		// empty results share one instance, unchanged values are reused
+		assertSame(none, none.map(v -> v + 1));
+		assertSame(none, some.filter(v -> v > 2));
+		assertSame(some, some.filter(v -> v == 2));
+		assertSame(some, some.or(OptionInt.some(3)));
+		assertSame(some, some.xor(none));
+		assertSame(none, some.xor(OptionInt.some(3)));
+
+		var seen = new ArrayList<Integer>();
+		assertSame(some, some.inspect(seen::add));
+		none.inspect(seen::add);
+		assertEquals(1, seen.size());
+	}
+
+	@Test
+	public void testOptionLong() {
+		var some = OptionLong.some(1L << 40);
+		assertEquals((1L << 40) + 1, some.map(v -> v + 1).unwrap());
+		assertEquals(3L, OptionLong.none().unwrapOr(3L));
+		assertEquals(1L << 40, some.okOr("missing").unwrap());
+		assertEquals("missing", OptionLong.none().okOr("missing").unwrapErr());
+		assertEquals("lazy", OptionLong.none().okOrElse(() -> "lazy").unwrapErr());
+		assertSame(OptionLong.none(), OptionLong.none().andThen(v -> OptionLong.some(v)));
+		assertEquals(5L, some.andThen(v -> OptionLong.some(5L)).unwrap());
+	}
+
+	@Test
+	public void testOptionDouble() {
+		var some = OptionDouble.some(1.5);
+		assertTrue(some.isSome());
+		assertEquals(3.0, some.map(v -> v * 2).unwrap());
+		assertEquals(0.5, OptionDouble.none().unwrapOr(0.5));
+		assertEquals(2.5, OptionDouble.none().mapOrElse(v -> v, () -> 2.5).unwrap());
+		assertTrue(some.isSomeAnd(v -> v > 1));
+		assertSame(OptionDouble.none(), some.filter(v -> v > 2));
+	}
+
+	@Test
+	public void testBoxing() {
+		assertEquals(3, OptionInt.from(Option.some(3)).unwrap());
+		assertSame(OptionInt.none(), OptionInt.from(Option.none()));
+		assertEquals(3, OptionInt.some(3).boxed().unwrap());
+		assertSame(Option.none(), OptionInt.none().boxed());
+		assertEquals(4L, OptionLong.from(Option.some(4L)).unwrap());
+		assertSame(OptionLong.none(), OptionLong.from(Option.none()));
+		assertEquals(4.5, OptionDouble.from(Option.some(4.5)).unwrap());
+		assertEquals(4.5, OptionDouble.some(4.5).boxed().unwrap());
+	}
+
+	@Test
+	public void testResultLong() {
+		var ok = ResultLong.<String>ok(10);
+		var err = ResultLong.<String>err("failed");
+		assertTrue(ok.isOk());
+		assertTrue(ok.isOkAnd(v -> v == 10));
+		assertTrue(err.isErr());
+		assertTrue(err.isErrAnd(e -> e.equals("failed")));
+		assertEquals(10L, ok.ok().unwrap());
+		assertSame(OptionLong.none(), err.ok());
+		assertEquals("failed", err.err().unwrap());
+		assertSame(Option.none(), ok.err());
+		assertEquals(11L, ok.map(v -> v + 1).unwrap());
+		assertEquals("10", ok.mapToObj(Long::toString).unwrap());
+		assertEquals(6L, err.unwrapOrElse(e -> e.length()));
+		assertEquals(1L, err.unwrapOr(1));
+		assertEquals(6, err.mapErr(String::length).unwrapErr());
+		assertTrue(ok.contains(10));
+		assertFalse(err.contains(0));
+		assertThrows(RuntimeException.class, err::unwrap);
+		assertThrows(RuntimeException.class, ok::unwrapErr);
+
+		// the side that is not touched is reused as it is
+		assertSame(err, err.map(v -> v + 1));
+		assertSame(err, err.and(ResultLong.ok(1)));
+		assertSame(ok, ok.inspectErr(e -> {}));
+
+		assertEquals(10L, ResultLong.from(Result.ok(10L)).unwrap());
+		assertEquals("failed", ResultLong.<String>from(Result.err("failed")).unwrapErr());
+		assertEquals(10L, ok.boxed().unwrap());
+		assertEquals("failed", err.boxed().unwrapErr());
+	}
+
+	@Test
+	public void testFunctionalInterfaces() {
+		IntActionMap twice = v -> v * 2;
+		IntFilterAction even = v -> v % 2 == 0;
+		LongTypeActionMap<String> hex = Long::toHexString;
+		ToLongActionMap<String> length = String::length;
+		assertEquals(6, twice.run(3));
+		assertTrue(even.run(twice.run(3)));
+		assertEquals("ff", hex.run(255L));
+		assertEquals(3L, length.run("abc"));
+		assertEquals(6, OptionInt.some(3).map(twice).unwrap());
+		assertEquals("ff", OptionLong.some(255L).mapToObj(hex).unwrap());
+	}
+}
@@ -0,0 +1,73 @@
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.streams.ReadableByteStream;
+import com.github.navnesen.streams.common.ByteBufferPool;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadableByteStreamTest {
+
+	@Test
+	public void testByobReadPullsIntoCallerBuffer() {
+		var source = ByteBuffer.wrap("hello world".getBytes(StandardCharsets.UTF_8));
+		var stream = new ReadableByteStream(target -> {
+			if (!source.hasRemaining()) {
+				return AsyncResult.ok(-1);
+			}
+			int count = Math.min(4, Math.min(source.remaining(), target.remaining()));
+			target.put(source.slice(source.position(), count));
+			source.position(source.position() + count);
+			return AsyncResult.ok(count);
+		});
+
+		var target = ByteBuffer.allocateDirect(32);
+		try (var reader = stream.getByobReader().unwrap()) {
+			int count;
+			while ((count = reader.read(target).unwrap()) >= 0) {
+				assertTrue(count <= 4);
+			}
+		}
+		target.flip();
+		assertEquals("hello world", StandardCharsets.UTF_8.decode(target).toString());
+	}
+
+	@Test
+	public void testByobReadKeepsRestOfChunk() {
+		var stream = new ReadableByteStream();
+		stream.tryEnqueue(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5}));
+		stream.close();
+
+		var target = ByteBuffer.allocate(2);
+		try (var reader = stream.getByobReader().unwrap()) {
+			int count = reader.read(target).unwrap();
+			assertEquals(2, count);
+		}
+		// the rest of the chunk goes to the next reader first
+		try (var reader = stream.getReader().unwrap()) {
+			var rest = reader.read().unwrap().unwrap();
+			assertEquals(3, rest.remaining());
+			int first = rest.get();
+			assertEquals(3, first);
+			assertTrue(reader.read().unwrap().isNone());
+		}
+	}
+
+	@Test
+	public void testPoolReusesBuffers() {
+		var pool = new ByteBufferPool(16, 4);
+		var buffer = pool.acquire();
+		assertTrue(buffer.isDirect());
+		buffer.put((byte) 1);
+		pool.release(buffer);
+		var reused = pool.acquire();
+		assertSame(buffer, reused);
+		assertEquals(0, reused.position());
+
+		// buffers of another size are not taken in
+		pool.release(ByteBuffer.allocateDirect(8));
+		assertNotSame(reused, pool.acquire());
+	}
+}
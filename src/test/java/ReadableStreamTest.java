@@ -0,0 +1,421 @@
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.streams.ReadableStream;
+import com.github.navnesen.streams.TransformStream;
+import com.github.navnesen.streams.common.CancelledException;
+import com.github.navnesen.streams.common.Stage;
+import com.github.navnesen.streams.common.TeePolicy;
+import com.github.navnesen.util.Option;
+import com.github.navnesen.util.Result;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadableStreamTest {
+
+	@Test
+	public void testReadQueuedChunks() {
+		var stream = new ReadableStream<Integer>();
+		assertTrue(stream.tryEnqueue(1));
+		assertTrue(stream.tryEnqueue(2));
+		stream.close();
+
+		try (var reader = stream.getReader().unwrap()) {
+			assertEquals(1, reader.read().unwrap().unwrap());
+			assertEquals(2, reader.read().unwrap().unwrap());
+			assertTrue(reader.read().unwrap().isNone());
+		}
+	}
+
+	@Test
+	public void testHandOffToWaitingReader() {
+		var stream = new ReadableStream<String>();
+		try (var reader = stream.getReader().unwrap()) {
+			var first = reader.read();
+			var second = reader.read();
+			assertFalse(first.isDone());
+
+			stream.tryEnqueue("a");
+			stream.tryEnqueue("b");
+			assertEquals("a", first.unwrap().unwrap());
+			assertEquals("b", second.unwrap().unwrap());
+		}
+	}
+
+	@Test
+	public void testBackpressure() {
+		var stream = new ReadableStream<Integer>(2);
+		assertTrue(stream.tryEnqueue(1));
+		assertTrue(stream.tryEnqueue(2));
+		assertEquals(0, stream.desiredSize());
+		assertFalse(stream.tryEnqueue(3));
+
+		var accepted = stream.enqueue(3);
+		assertFalse(accepted.isDone());
+		assertFalse(stream.tryEnqueue(4), "must not overtake a waiting producer");
+
+		try (var reader = stream.getReader().unwrap()) {
+			assertEquals(1, reader.read().unwrap().unwrap());
+			assertTrue(accepted.isDone());
+			assertEquals(2, reader.read().unwrap().unwrap());
+			assertEquals(3, reader.read().unwrap().unwrap());
+		}
+	}
+
+	@Test
+	public void testPullSource() {
+		final AtomicInteger next = new AtomicInteger(0);
+		var stream = new ReadableStream<Integer>(() -> {
+			var value = next.getAndIncrement();
+			return AsyncResult.ok(value < 3 ? Option.some(value) : Option.none());
+		});
+		try (var reader = stream.getReader().unwrap()) {
+			assertEquals(0, reader.read().unwrap().unwrap());
+			assertEquals(1, reader.read().unwrap().unwrap());
+			assertEquals(2, reader.read().unwrap().unwrap());
+			assertTrue(reader.read().unwrap().isNone());
+		}
+	}
+
+	@Test
+	public void testErrorFailsReads() {
+		var stream = new ReadableStream<Integer>();
+		try (var reader = stream.getReader().unwrap()) {
+			var pending = reader.read();
+			stream.error(new IllegalStateException("broken"));
+			assertInstanceOf(IllegalStateException.class, pending.await().unwrapErr());
+			assertTrue(reader.read().await().isErr());
+		}
+	}
+
+	@Test
+	public void testConcurrentProducer() throws InterruptedException {
+		var stream = new ReadableStream<Integer>(16);
+		var producer = new Thread(() -> {
+			for (int i = 0; i < 100_000; i++) {
+				stream.enqueue(i).unwrap();
+			}
+			stream.close();
+		});
+		producer.start();
+
+		try (var reader = stream.getReader().unwrap()) {
+			int expected = 0;
+			Option<Integer> chunk;
+			while ((chunk = reader.read().unwrap()).isSome()) {
+				assertEquals(expected++, chunk.unwrap());
+			}
+			assertEquals(100_000, expected);
+		}
+		producer.join();
+	}
+
+	@Test
+	public void testTee() {
+		var stream = new ReadableStream<Integer>();
+		for (int i = 0; i < 10; i++) {
+			stream.tryEnqueue(i);
+		}
+		stream.close();
+
+		var branches = stream.tee();
+		final List<Integer> first = new ArrayList<>();
+		final List<Integer> second = new ArrayList<>();
+		try (var a = branches.a.getReader().unwrap(); var b = branches.b.getReader().unwrap()) {
+			Option<Integer> chunk;
+			while ((chunk = a.read().unwrap()).isSome()) {
+				first.add(chunk.unwrap());
+			}
+			while ((chunk = b.read().unwrap()).isSome()) {
+				second.add(chunk.unwrap());
+			}
+		}
+		assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), first);
+		assertEquals(first, second);
+	}
+
+	@Test
+	public void testTeeBackpressure() {
+		var stream = new ReadableStream<Integer>();
+		for (int i = 0; i < 10; i++) {
+			stream.tryEnqueue(i);
+		}
+
+		var branches = stream.tee(2, TeePolicy.BACKPRESSURE);
+		try (var fast = branches.a.getReader().unwrap(); var slow = branches.b.getReader().unwrap()) {
+			assertEquals(0, fast.read().unwrap().unwrap());
+			assertEquals(1, fast.read().unwrap().unwrap());
+			var blocked = fast.read();
+			assertFalse(blocked.isDone());
+
+			assertEquals(0, slow.read().unwrap().unwrap());
+			assertEquals(2, blocked.unwrap().unwrap());
+		}
+	}
+
+	@Test
+	public void testTeeDrop() {
+		var stream = new ReadableStream<Integer>();
+		for (int i = 0; i < 10; i++) {
+			stream.tryEnqueue(i);
+		}
+		stream.close();
+
+		var branches = stream.tee(2, TeePolicy.DROP);
+		try (var fast = branches.a.getReader().unwrap(); var slow = branches.b.getReader().unwrap()) {
+			for (int i = 0; i < 10; i++) {
+				assertEquals(i, fast.read().unwrap().unwrap());
+			}
+			assertTrue(fast.read().unwrap().isNone());
+
+			// only the last chunks are still buffered for the slow branch
+			assertEquals(8, slow.read().unwrap().unwrap());
+			assertEquals(9, slow.read().unwrap().unwrap());
+			assertTrue(slow.read().unwrap().isNone());
+		}
+	}
+
+	@Test
+	public void testTeeCancelBranch() {
+		final AtomicInteger next = new AtomicInteger(0);
+		var stream = new ReadableStream<Integer>(() -> AsyncResult.ok(Option.some(next.getAndIncrement())));
+		var branches = stream.tee(2, TeePolicy.BACKPRESSURE);
+
+		// the cancelled branch no longer holds back the other one
+		branches.b.cancel().unwrap();
+		try (var reader = branches.a.getReader().unwrap()) {
+			for (int i = 0; i < 10; i++) {
+				int chunk = reader.read(Duration.ofSeconds(5)).unwrap().unwrap();
+				assertEquals(i, chunk);
+			}
+		}
+
+		// the source is cancelled with the last branch
+		var source = new ReadableStream<Integer>();
+		var both = source.tee();
+		both.a.cancel().unwrap();
+		// still locked by the remaining branch
+		assertInstanceOf(TimeoutException.class, source.getReader().timeout(Duration.ofMillis(50)).await().unwrapErr());
+		both.b.cancel().unwrap();
+		assertInstanceOf(CancelledException.class, source.getReader().await().unwrapErr());
+	}
+
+	private static <T> List<T> readAll(ReadableStream<T> stream) {
+		final List<T> chunks = new ArrayList<>();
+		try (var reader = stream.getReader().unwrap()) {
+			Option<T> chunk;
+			while ((chunk = reader.read().unwrap()).isSome()) {
+				chunks.add(chunk.unwrap());
+			}
+		}
+		return chunks;
+	}
+
+	@Test
+	public void testFusedStages() {
+		var stream = new ReadableStream<Integer>();
+		for (int i = 0; i < 10; i++) {
+			stream.tryEnqueue(i);
+		}
+		stream.close();
+
+		final AtomicInteger mapped = new AtomicInteger(0);
+		var result = stream
+			.filter(value -> value % 2 == 0)
+			.map(value -> {
+				mapped.incrementAndGet();
+				return value * 10;
+			})
+			.flatMap(value -> List.of(value, value + 1))
+			.takeWhile(value -> value < 70);
+
+		assertEquals(List.of(0, 1, 20, 21, 40, 41, 60, 61), readAll(result));
+		assertEquals(5, mapped.get());
+	}
+
+	@Test
+	public void testTakeWhileLeavesRestOfSource() {
+		var stream = new ReadableStream<Integer>();
+		for (int i = 0; i < 10; i++) {
+			stream.tryEnqueue(i);
+		}
+		stream.close();
+
+		// the whole queue is read as one batch, but the chunks from the one
+		// that ended takeWhile on stay with the source
+		var taken = stream.map(value -> value).takeWhile(value -> value < 3);
+		assertEquals(List.of(0, 1, 2), readAll(taken));
+		assertEquals(List.of(3, 4, 5, 6, 7, 8, 9), readAll(stream));
+	}
+
+	@Test
+	public void testPipeThroughTransformStream() {
+		var stream = new ReadableStream<Integer>();
+		for (int i = 0; i < 5; i++) {
+			stream.tryEnqueue(i);
+		}
+		stream.close();
+
+		var transform = new TransformStream<Integer, String>(Stage.map(String::valueOf), 2);
+		assertEquals(List.of("0", "1", "2", "3", "4"), readAll(stream.pipeThrough(transform)));
+	}
+
+	@Test
+	public void testBulkReads() {
+		var stream = new ReadableStream<Integer>(4);
+		for (int i = 0; i < 4; i++) {
+			stream.tryEnqueue(i);
+		}
+		var waiting = stream.enqueue(4);
+
+		try (var reader = stream.getReader().unwrap()) {
+			assertEquals(List.of(0, 1, 2), reader.readMany(3).unwrap());
+
+			// the space freed lets the waiting producer in
+			assertTrue(waiting.isDone());
+			final List<Integer> drained = new ArrayList<>();
+			int count = reader.drainTo(drained).unwrap();
+			assertEquals(2, count);
+			assertEquals(List.of(3, 4), drained);
+
+			var pending = reader.readInto(new Integer[4]);
+			assertFalse(pending.isDone());
+			stream.tryEnqueue(5);
+			stream.close();
+			int read = pending.unwrap();
+			assertEquals(1, read);
+
+			assertTrue(reader.readMany(8).unwrap().isEmpty());
+			int end = reader.readInto(new Integer[4]).unwrap();
+			assertEquals(-1, end);
+		}
+	}
+
+	@Test
+	public void testMapParallel() {
+		for (var ordered : List.of(true, false)) {
+			var stream = new ReadableStream<Integer>();
+			for (int i = 0; i < 200; i++) {
+				stream.tryEnqueue(i);
+			}
+			stream.close();
+
+			final AtomicInteger running = new AtomicInteger(0);
+			final AtomicInteger maxRunning = new AtomicInteger(0);
+			var mapped = stream.mapParallel(4, value -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				LockSupport.parkNanos((value % 3) * 1_000_000L);
+				running.decrementAndGet();
+				return value * 2;
+			}, ordered);
+
+			var result = readAll(mapped);
+			assertTrue(maxRunning.get() <= 4);
+			assertTrue(maxRunning.get() > 1);
+			if (!ordered) {
+				result.sort(Integer::compare);
+			}
+			for (int i = 0; i < 200; i++) {
+				int value = result.get(i);
+				assertEquals(i * 2, value);
+			}
+		}
+	}
+
+	@Test
+	public void testMapParallelFailureCancelsSource() {
+		var stream = new ReadableStream<Integer>();
+		for (int i = 0; i < 100; i++) {
+			stream.tryEnqueue(i);
+		}
+		final AtomicInteger emitted = new AtomicInteger(0);
+		var mapped = stream.mapParallel(4, value -> {
+			if (value == 10) {
+				throw new IllegalStateException("failed");
+			}
+			return value;
+		}, true);
+		try (var reader = mapped.getReader().unwrap()) {
+			Result<Option<Integer>, Throwable> chunk;
+			while ((chunk = reader.read().await()).isOk()) {
+				emitted.incrementAndGet();
+			}
+			assertInstanceOf(IllegalStateException.class, chunk.unwrapErr());
+		}
+		// an error discards the queued results, but none come after it
+		assertTrue(emitted.get() <= 10);
+		// the source is cancelled rather than left locked
+		assertInstanceOf(CancelledException.class, stream.getReader().timeout(Duration.ofSeconds(5)).await().unwrapErr());
+	}
+
+	@Test
+	public void testReadTimeout() {
+		var stream = new ReadableStream<Integer>();
+		try (var reader = stream.getReader().unwrap()) {
+			var timedOut = reader.read(Duration.ofMillis(20));
+			assertInstanceOf(TimeoutException.class, timedOut.await().unwrapErr());
+
+			// the chunk goes to the next read, not to the one that gave up
+			stream.tryEnqueue(1);
+			int chunk = reader.read(Duration.ofSeconds(5)).unwrap().unwrap();
+			assertEquals(1, chunk);
+		}
+	}
+
+	@Test
+	public void testCancelRead() {
+		var stream = new ReadableStream<Integer>();
+		try (var reader = stream.getReader().unwrap()) {
+			// a cancelled read gives up its place, and the chunk goes to the
+			// next read
+			var cancelled = reader.read().map(chunk -> chunk.unwrap());
+			assertTrue(cancelled.cancel());
+			stream.tryEnqueue(1);
+			int chunk = reader.read().unwrap().unwrap();
+			assertEquals(1, chunk);
+
+			// cancelling the stream wakes pending reads
+			var pending = reader.read();
+			reader.cancel("done").unwrap();
+			assertInstanceOf(CancelledException.class, pending.await().unwrapErr());
+		}
+
+		// cancelling a fused stage cancels its source
+		var source = new ReadableStream<Integer>();
+		var mapped = source.map(value -> value * 2);
+		try (var reader = mapped.getReader().unwrap()) {
+			var pending = reader.read();
+			reader.cancel().unwrap();
+			assertTrue(pending.await().isErr());
+		}
+		assertTrue(source.getReader().await().isErr());
+	}
+
+	@Test
+	public void testReadIntoTargetIsIterable() {
+		final List<String> seen = new ArrayList<>();
+		var stream = new ReadableStream<Integer>() {
+			@Override
+			protected AsyncResult<Integer> internalReadTo(Collection<? super Integer> target, int max) {
+				return super.internalReadTo(target, max).inspect(count -> seen.add(target.toString()));
+			}
+		};
+		stream.tryEnqueue(1);
+		stream.tryEnqueue(2);
+
+		final Integer[] target = new Integer[4];
+		try (var reader = stream.getReader().unwrap()) {
+			int read = reader.readInto(target, 1, 3).unwrap();
+			assertEquals(2, read);
+		}
+		assertArrayEquals(new Integer[]{null, 1, 2, null}, target);
+		assertEquals(List.of("[1, 2]"), seen);
+	}
+}
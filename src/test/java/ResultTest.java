@@ -0,0 +1,49 @@
+import com.github.navnesen.util.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultTest {
+
+	@Test
+	public void testOkAndErr() {
+		var ok = Result.<Integer, String>ok(1);
+		var err = Result.<Integer, String>err("failed");
+		assertTrue(ok.isOk());
+		assertTrue(ok.isOkAnd(v -> v == 1));
+		assertTrue(err.isErr());
+		assertTrue(err.isErrAnd(e -> e.equals("failed")));
+		assertEquals(1, ok.ok().unwrap());
+		assertTrue(ok.err().isNone());
+		assertEquals("failed", err.err().unwrap());
+		assertTrue(err.ok().isNone());
+		assertEquals(2, ok.map(v -> v + 1).unwrap());
+		assertEquals(5, err.unwrapOr(5));
+		assertEquals(6, err.unwrapOrElse(String::length));
+		assertThrows(RuntimeException.class, err::unwrap);
+		assertThrows(RuntimeException.class, ok::unwrapErr);
+	}
+
+	@Test
+	public void testCombinatorsDoNotRewrap() {
+		var ok = Result.<Integer, String>ok(1);
+		var err = Result.<Integer, String>err("failed");
+
+		var seen = new ArrayList<Object>();
+		assertSame(ok, ok.inspect(seen::add));
+		assertSame(ok, ok.inspectErr(seen::add));
+		assertSame(err, err.inspect(seen::add));
+		assertSame(err, err.inspectErr(seen::add));
+		assertEquals(2, seen.size());
+
+		// the side that is not touched is reused as it is
+		assertSame(err, err.map(v -> v + 1));
+		assertSame(err, err.and(Result.ok(2)));
+		assertSame(err, err.andThen(v -> Result.ok(v + 1)));
+		assertSame(ok, ok.mapErr(String::length));
+		assertSame(ok, ok.or(Result.err(3)));
+		assertSame(ok, ok.orElse(e -> Result.err(e.length())));
+	}
+}
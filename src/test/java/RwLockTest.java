@@ -0,0 +1,87 @@
+import com.github.navnesen.sync.RwLock;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RwLockTest {
+
+	@Test
+	public void testReadersShareLock() {
+		RwLock<Integer> lock = RwLock.of(1);
+		try (var first = lock.read()) {
+			try (var second = lock.read()) {
+				assertEquals(1, first.get());
+				assertEquals(1, second.get());
+			}
+		}
+	}
+
+	@Test
+	public void testWriterExcludesReaders() throws InterruptedException {
+		RwLock<Integer> lock = RwLock.of(0);
+		final AtomicReference<Integer> seen = new AtomicReference<>(null);
+
+		var write = lock.write();
+		var reader = new Thread(() -> {
+			try (var read = lock.read()) {
+				seen.set(read.get());
+			}
+		});
+		reader.start();
+		Thread.sleep(100);
+		assertNull(seen.get());
+
+		write.set(1);
+		write.release();
+		reader.join();
+		assertEquals(1, seen.get());
+		assertThrows(RuntimeException.class, () -> write.set(2));
+	}
+
+	@Test
+	public void testWaitingWriterBlocksNewReaders() throws InterruptedException {
+		RwLock<Integer> lock = RwLock.of(0);
+		final AtomicBoolean lateReaderDone = new AtomicBoolean(false);
+
+		var read = lock.read();
+		var writer = new Thread(() -> {
+			try (var write = lock.write()) {
+				write.set(1);
+				// the late reader must not have been let in ahead of this writer
+				assertFalse(lateReaderDone.get());
+			}
+		});
+		writer.start();
+		Thread.sleep(100);
+
+		var lateReader = new Thread(() -> {
+			try (var lateRead = lock.read()) {
+				assertEquals(1, lateRead.get());
+				lateReaderDone.set(true);
+			}
+		});
+		lateReader.start();
+		Thread.sleep(100);
+		assertFalse(lateReaderDone.get());
+
+		read.release();
+		writer.join();
+		lateReader.join();
+		assertTrue(lateReaderDone.get());
+	}
+
+	@Test
+	public void testOptimisticRead() {
+		RwLock<Integer> lock = RwLock.of(41);
+		int result = lock.optimisticRead(value -> value + 1);
+		assertEquals(42, result);
+		try (var write = lock.write()) {
+			write.set(1);
+		}
+		result = lock.optimisticRead(value -> value + 1);
+		assertEquals(2, result);
+	}
+}
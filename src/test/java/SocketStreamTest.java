@@ -0,0 +1,121 @@
+import com.github.navnesen.streams.SocketStream;
+import com.github.navnesen.streams.common.SelectorLoop;
+import com.github.navnesen.util.Option;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SocketStreamTest {
+
+	@Test
+	public void testTransferOverLoopback() throws IOException {
+		try (var loop = SelectorLoop.open().unwrap(); var server = ServerSocketChannel.open()) {
+			server.bind(new InetSocketAddress("127.0.0.1", 0));
+			var accepted = SocketStream.accept(server, loop);
+			var client = SocketStream.connect(server.getLocalAddress(), loop).unwrap();
+			var peer = accepted.unwrap();
+
+			// more than the socket buffers hold, so writes have to wait
+			final int size = 4 * 1024 * 1024;
+			final int chunkSize = 64 * 1024;
+			for (int offset = 0; offset < size; offset += chunkSize) {
+				var chunk = ByteBuffer.allocate(chunkSize);
+				for (int i = 0; i < chunkSize; i++) {
+					chunk.put((byte) (offset + i));
+				}
+				client.writable.write(chunk.flip());
+			}
+			var closed = client.writable.close();
+
+			long received = 0;
+			try (var reader = peer.readable.getReader().unwrap()) {
+				Option<ByteBuffer> chunk;
+				while ((chunk = reader.read().unwrap()).isSome()) {
+					var buffer = chunk.unwrap();
+					while (buffer.hasRemaining()) {
+						assertEquals((byte) received++, buffer.get());
+					}
+					peer.readable.release(buffer);
+				}
+			}
+			closed.unwrap();
+			assertEquals(size, received);
+			client.close();
+			peer.close();
+		}
+	}
+
+	@Test
+	public void testManyConnectionsOnOneLoop() throws IOException {
+		try (var loop = SelectorLoop.open().unwrap(); var server = ServerSocketChannel.open()) {
+			server.bind(new InetSocketAddress("127.0.0.1", 0));
+			final List<SocketStream> clients = new ArrayList<>();
+			final List<SocketStream> peers = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				var accepted = SocketStream.accept(server, loop);
+				clients.add(SocketStream.connect(server.getLocalAddress(), loop).unwrap());
+				peers.add(accepted.unwrap());
+			}
+			// read first, so every read waits on the loop
+			try (var reader = peers.get(49).readable.getByobReader().unwrap()) {
+				var pending = reader.read(ByteBuffer.allocate(4));
+				for (int i = 0; i < 50; i++) {
+					clients.get(i).writable.write(ByteBuffer.allocate(4).putInt(0, i)).unwrap();
+				}
+				int count = pending.unwrap();
+				assertEquals(4, count);
+			}
+			for (int i = 0; i < 49; i++) {
+				var target = ByteBuffer.allocate(4);
+				try (var reader = peers.get(i).readable.getByobReader().unwrap()) {
+					while (target.hasRemaining()) {
+						reader.read(target).unwrap();
+					}
+				}
+				assertEquals(i, target.getInt(0));
+			}
+			for (var stream : clients) {
+				stream.close();
+			}
+			for (var stream : peers) {
+				stream.close();
+			}
+		}
+	}
+
+	@Test
+	public void testLoopSurvivesFailingTask() throws IOException {
+		try (var loop = SelectorLoop.open().unwrap()) {
+			var pipe = Pipe.open();
+			pipe.sink().configureBlocking(false);
+			pipe.source().configureBlocking(false);
+
+			var handler = new ArrayList<Throwable>();
+			loop.execute(() -> Thread.currentThread().setUncaughtExceptionHandler((thread, ex) -> handler.add(ex)));
+			loop.execute(() -> {
+				throw new IllegalStateException("task failed");
+			});
+
+			// the loop still serves channels after the task failed
+			loop.whenReady(pipe.sink(), SelectionKey.OP_WRITE).timeout(Duration.ofSeconds(2)).unwrap();
+			var readable = loop.whenReady(pipe.source(), SelectionKey.OP_READ);
+			pipe.sink().write(ByteBuffer.wrap(new byte[]{1}));
+			readable.timeout(Duration.ofSeconds(2)).unwrap();
+			assertEquals(1, handler.size());
+			assertInstanceOf(IllegalStateException.class, handler.get(0));
+
+			loop.close(pipe.sink());
+			loop.close(pipe.source());
+		}
+	}
+}
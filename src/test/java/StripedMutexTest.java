@@ -0,0 +1,102 @@
+import com.github.navnesen.sync.StripedMutex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedMutexTest {
+
+	@Test
+	public void testStripingByKey() {
+		var striped = new StripedMutex<String, Integer>(5, () -> 0);
+		assertEquals(8, striped.stripes());
+
+		// a key always maps to the same stripe
+		assertEquals(striped.stripeOf("a"), striped.stripeOf("a"));
+		assertSame(striped.stripe("a"), striped.stripe("a"));
+
+		final Set<Integer> used = new HashSet<>();
+		for (int i = 0; i < 100; i++) {
+			int stripe = striped.stripeOf("key-" + i);
+			assertTrue(stripe >= 0 && stripe < 8);
+			used.add(stripe);
+		}
+		assertTrue(used.size() > 1);
+
+		// keys on other stripes are not blocked by a held stripe
+		try (var lock = striped.lock("a")) {
+			lock.set(1);
+			assertTrue(striped.stripe("a").tryLock().isNone());
+			for (int i = 0; i < 100; i++) {
+				var key = "key-" + i;
+				if (striped.stripeOf(key) != striped.stripeOf("a")) {
+					var other = striped.stripe(key).tryLock();
+					assertTrue(other.isSome());
+					other.unwrap().release();
+					break;
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLockAllDoesNotDeadlock() throws InterruptedException {
+		var striped = new StripedMutex<Integer, Integer>(8, () -> 0);
+		final List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			final int offset = t;
+			// threads taking every stripe, and threads taking single stripes,
+			// all contend for the same stripes
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 1_000; i++) {
+					try (var all = striped.lockAll()) {
+						all.set(offset % all.size(), all.get(offset % all.size()) + 1);
+					}
+				}
+			}));
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 1_000; i++) {
+					try (var lock = striped.lock(i + offset)) {
+						lock.set(lock.get() + 1);
+					}
+				}
+			}));
+		}
+		for (var thread : threads) {
+			thread.start();
+		}
+		for (var thread : threads) {
+			thread.join(10_000);
+			assertFalse(thread.isAlive(), "deadlocked");
+		}
+		try (var all = striped.lockAll()) {
+			int total = 0;
+			for (int i = 0; i < all.size(); i++) {
+				total += all.get(i);
+			}
+			assertEquals(8_000, total);
+		}
+	}
+
+	@Test
+	public void testLockAllRelease() {
+		var striped = new StripedMutex<Integer, Integer>(4, () -> 0);
+		var all = striped.lockAll();
+		for (int i = 0; i < 4; i++) {
+			assertTrue(striped.stripe(i).tryLock().isNone());
+		}
+		all.release();
+		assertThrows(RuntimeException.class, () -> all.get(0));
+		// a second release is a no-op
+		all.release();
+		for (int i = 0; i < 4; i++) {
+			var lock = striped.stripe(i).tryLock();
+			assertTrue(lock.isSome());
+			lock.unwrap().release();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+import com.github.navnesen.async.AsyncResult;
+import com.github.navnesen.async.DeferredAsyncResult;
+import com.github.navnesen.streams.ReadableStream;
+import com.github.navnesen.streams.WritableStream;
+import com.github.navnesen.streams.common.DataSink;
+import com.github.navnesen.util.Option;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WritableStreamTest {
+
+	/**
+	 * A sink that records its chunks, and whose writes complete when the test
+	 * says so.
+	 */
+	static class RecordingSink implements DataSink<Integer> {
+		final List<Integer> chunks = new ArrayList<>();
+		final List<Integer> batchSizes = new ArrayList<>();
+		final List<DeferredAsyncResult<Void>> pending = new ArrayList<>();
+		boolean manual = false;
+		boolean closed = false;
+		Option<String> aborted = Option.none();
+
+		@Override
+		public synchronized AsyncResult<Void> write(Integer chunk) {
+			return this.writev(List.of(chunk));
+		}
+
+		@Override
+		public synchronized AsyncResult<Void> writev(List<Integer> chunks) {
+			this.chunks.addAll(chunks);
+			this.batchSizes.add(chunks.size());
+			if (!this.manual) {
+				return AsyncResult.ok(null);
+			}
+			var written = new DeferredAsyncResult<Void>();
+			this.pending.add(written);
+			return written;
+		}
+
+		@Override
+		public synchronized AsyncResult<Void> close() {
+			this.closed = true;
+			return AsyncResult.ok(null);
+		}
+
+		@Override
+		public synchronized AsyncResult<Void> abort(Option<String> reason) {
+			this.aborted = Option.some(reason.unwrapOr(""));
+			return AsyncResult.ok(null);
+		}
+
+		synchronized void completeNext() {
+			this.pending.remove(0).okay(null);
+		}
+	}
+
+	@Test
+	public void testWritesAreBatched() {
+		var sink = new RecordingSink();
+		sink.manual = true;
+		var writable = new WritableStream<>(sink, 4);
+
+		var first = writable.write(1);
+		writable.write(2);
+		writable.write(3);
+		var last = writable.write(4);
+		assertEquals(0, writable.desiredSize());
+		var ready = writable.ready();
+		assertFalse(ready.isDone());
+
+		sink.completeNext();
+		assertTrue(first.isDone());
+		assertTrue(ready.isDone());
+		sink.completeNext();
+		assertTrue(last.isDone());
+
+		writable.close().unwrap();
+		assertEquals(List.of(1, 2, 3, 4), sink.chunks);
+		assertEquals(List.of(1, 3), sink.batchSizes);
+		assertTrue(sink.closed);
+	}
+
+	@Test
+	public void testPipeTo() {
+		var readable = new ReadableStream<Integer>(8);
+		var sink = new RecordingSink();
+
+		// queue the chunks up front, so the pipe finds several at a time
+		final List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			readable.enqueue(i);
+			expected.add(i);
+		}
+		readable.close();
+		readable.pipeTo(new WritableStream<>(sink, 4)).unwrap();
+
+		assertEquals(expected, sink.chunks);
+		assertTrue(sink.closed);
+		assertTrue(sink.batchSizes.stream().anyMatch(size -> size > 1));
+	}
+
+	@Test
+	public void testPipeToPropagatesSourceError() {
+		var readable = new ReadableStream<Integer>();
+		var sink = new RecordingSink();
+		var piped = readable.pipeTo(new WritableStream<>(sink));
+
+		readable.enqueue(1);
+		readable.error(new IllegalStateException("broken"));
+
+		assertInstanceOf(IllegalStateException.class, piped.await().unwrapErr());
+		assertEquals("java.lang.IllegalStateException: broken", sink.aborted.unwrap());
+		assertFalse(sink.closed);
+	}
+
+	@Test
+	public void testCloseDuringEmptyFlushIsNotLost() throws Exception {
+		var sink = new RecordingSink();
+		final List<AsyncResult<Void>> closed = new ArrayList<>();
+		var writable = new WritableStream<>(sink) {
+			boolean once = true;
+
+			@Override
+			protected void internalCloseSinkIfDone() {
+				super.internalCloseSinkIfDone();
+				if (this.once) {
+					// close while the flush loop still holds the writing flag
+					this.once = false;
+					var closer = new Thread(() -> closed.add(this.close()));
+					closer.start();
+					try {
+						closer.join();
+					} catch (InterruptedException ex) {
+						throw new RuntimeException(ex);
+					}
+				}
+			}
+		};
+
+		writable.write(1).unwrap();
+		assertEquals(1, closed.size());
+		closed.get(0).timeout(Duration.ofSeconds(2)).unwrap();
+		assertTrue(sink.closed);
+	}
+
+	@Test
+	public void testConcurrentWriteAndClose() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			var sink = new RecordingSink();
+			var writable = new WritableStream<>(sink);
+			var writer = new Thread(() -> {
+				for (int j = 0; j < 20; j++) {
+					writable.write(j);
+				}
+			});
+			writer.start();
+			var close = writable.close();
+			writer.join();
+			close.timeout(Duration.ofSeconds(2)).unwrap();
+			assertTrue(sink.closed);
+		}
+	}
+}